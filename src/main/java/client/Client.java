@@ -1,13 +1,16 @@
 package client;
 
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.logging.Logger;
 
 import client.dataStructures.SharedObject;
+import client.threads.AckThread;
 import client.threads.BroadcastThread;
 import client.threads.DirectThread;
 import client.threads.MulticastThread;
+import client.threads.ResponseThread;
+import shared.enumerations.ExecutionMode;
+import shared.enumerations.Framing;
 
 /**
  * The Client class represents a client application that interacts with a server.
@@ -23,6 +26,9 @@ public class Client {
   public static final int CLIENT_PORT = 9001;
   public static final int MULTICAST_PORT = 9002;
   public static final int BUFFER_SIZE = 1024;
+  public static final ExecutionMode EXECUTION_MODE = ExecutionMode.fromProperty();
+  public static final Framing FRAMING = Framing.LENGTH;
+  public static final long ACK_INTERVAL = 1000;
 
   private static ExecutorService executorService;
 
@@ -35,7 +41,7 @@ public class Client {
   public static void main(String[] args) {
     logger.info("Starting...");
     SharedObject.init();
-    executorService = Executors.newFixedThreadPool(3);
+    executorService = EXECUTION_MODE.newExecutorService(4);
 
     Runtime.getRuntime().addShutdownHook(new Thread(() -> {
       logger.info("Shutting down...");
@@ -45,13 +51,15 @@ public class Client {
 
   /**
    * Initializes the client in an authenticated state.
-   * It initializes the shared object, and starts the direct, broadcast, and multicast threads.
+   * It initializes the shared object, and starts the direct, response, broadcast, multicast, and ack threads.
    */
   public static void initAuthenticated() {
     SharedObject.initAuthenticated();
     executorService.execute(new DirectThread());
+    executorService.execute(new ResponseThread());
     executorService.execute(new BroadcastThread());
     executorService.execute(new MulticastThread());
+    EXECUTION_MODE.startThread(new AckThread());
   }
 
   /**
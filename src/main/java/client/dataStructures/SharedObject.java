@@ -1,14 +1,19 @@
 package client.dataStructures;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.MulticastSocket;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.logging.Logger;
 
 import javax.swing.SwingUtilities;
@@ -16,6 +21,8 @@ import javax.swing.SwingUtilities;
 import client.Client;
 import client.gui.ChatRoom;
 import client.gui.InitialMenu;
+import shared.enumerations.Framing;
+import shared.protocols.Frames;
 
 /**
  * The SharedObject class is a class that contains all the data structures that are used by the client.
@@ -24,10 +31,12 @@ public class SharedObject {
   private static final Logger logger = Logger.getLogger(SharedObject.class.getName());
   
   private static String username;
+  private static final Queue<Long> processedSequences = new ConcurrentLinkedQueue<>();
   
   private static Socket directSocket;
-  private static BufferedReader directIn;
-  private static PrintWriter directOut;
+  private static DataInputStream directIn;
+  private static DataOutputStream directOut;
+  private static Framing framing = Framing.LINE;
   private static ServerSocket serverSocket;
   private static MulticastSocket multicastSocket;
   private static DatagramSocket broadcastSocket;
@@ -42,8 +51,8 @@ public class SharedObject {
     try {
       directSocket = new Socket(Client.SERVER_ADDRESS, Client.SERVER_PORT);
       directSocket.setSoTimeout(5000);
-      directIn = new BufferedReader(new InputStreamReader(directSocket.getInputStream()));
-      directOut = new PrintWriter(directSocket.getOutputStream(), true);
+      directIn = new DataInputStream(new BufferedInputStream(directSocket.getInputStream()));
+      directOut = new DataOutputStream(new BufferedOutputStream(directSocket.getOutputStream()));
       SwingUtilities.invokeLater(() -> {
         new InitialMenu();
       });
@@ -59,6 +68,7 @@ public class SharedObject {
    */
   public static void initAuthenticated() {
     try {
+      directSocket.setSoTimeout(0);
       serverSocket = new ServerSocket(Client.CLIENT_PORT);
       multicastSocket = new MulticastSocket(Client.MULTICAST_PORT);
       broadcastSocket = new DatagramSocket(Client.CLIENT_PORT, InetAddress.getByName(Client.BROADCAST_ADDRESS));
@@ -86,6 +96,30 @@ public class SharedObject {
     }
   }
 
+  /**
+   * Sends a frame to the server over the direct connection, using the negotiated framing.
+   *
+   * @param frame the content of the frame
+   * @throws IOException if an I/O error occurs while writing
+   */
+  public static void sendDirect(String frame) throws IOException {
+    synchronized (directOut) {
+      Frames.write(directOut, framing, frame);
+    }
+  }
+
+  /**
+   * Receives a frame from the server over the direct connection, using the negotiated framing.
+   *
+   * @return the content of the frame, or null if the server closed the connection
+   * @throws IOException if an I/O error occurs while reading
+   */
+  public static String receiveDirect() throws IOException {
+    synchronized (directIn) {
+      return Frames.read(directIn, framing);
+    }
+  }
+
   //#region Getters and Setters
   public static String getUsername() {
     return username;
@@ -95,16 +129,42 @@ public class SharedObject {
     SharedObject.username = username;
   }
 
+  /**
+   * Records the sequence number of an event processed, queuing it to be acknowledged.
+   *
+   * @param sequence the sequence number of the event
+   */
+  public static void addProcessedSequence(long sequence) {
+    if (sequence <= 0) {
+      return;
+    }
+    processedSequences.add(sequence);
+  }
+
+  /**
+   * Removes and returns the sequence numbers of the events processed since the last call.
+   *
+   * @return the sequence numbers of the events processed, in the order they were processed
+   */
+  public static List<Long> drainProcessedSequences() {
+    List<Long> sequences = new ArrayList<>();
+    Long sequence;
+    while ((sequence = processedSequences.poll()) != null) {
+      sequences.add(sequence);
+    }
+    return sequences;
+  }
+
   public static Socket getDirectSocket() {
     return directSocket;
   }
 
-  public static BufferedReader getDirectIn() throws IOException {
-    return directIn;
+  public static Framing getFraming() {
+    return framing;
   }
 
-  public static PrintWriter getDirectOut() throws IOException {
-    return directOut;
+  public static void setFraming(Framing framing) {
+    SharedObject.framing = framing;
   }
 
   public static ServerSocket getServerSocket() {
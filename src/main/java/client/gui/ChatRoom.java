@@ -9,7 +9,6 @@ import java.awt.Insets;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.net.DatagramPacket;
 import java.net.InetAddress;
 import java.text.SimpleDateFormat;
@@ -228,8 +227,7 @@ public class ChatRoom extends JFrame {
       } else {
         // Direct
         try {
-          PrintWriter out = SharedObject.getDirectOut();
-          out.println(json.toString());
+          SharedObject.sendDirect(json.toString());
         } catch (Exception ignored) {
           System.out.println("Error sending message to user " + recipient + "!");
           return;
@@ -306,8 +304,7 @@ public class ChatRoom extends JFrame {
         }
       } else {
         try {
-          PrintWriter out = SharedObject.getDirectOut();
-          out.println(json.toString());
+          SharedObject.sendDirect(json.toString());
         } catch (Exception ignored) {
           System.out.println("Error sending request to user " + recipient + "!");
           return;
@@ -54,6 +54,7 @@ public class EventsHandler {
       return null;
     }
     SharedObject.getChatRoom().receiveMessage(json.getString("from"), json.getString("to"), json.getString("content"), json.getString("date"));
+    SharedObject.addProcessedSequence(json.optLong("sequence", 0));
     return null;
   }
 
@@ -93,6 +94,7 @@ public class EventsHandler {
       return null;
     }
     SharedObject.getChatRoom().receiveRequest(json.getString("from"), json.getString("to"), json.getString("content"), json.getString("date"), json.getString("accepter"));
+    SharedObject.addProcessedSequence(json.optLong("sequence", 0));
     return null;
   }
 
@@ -119,6 +121,7 @@ public class EventsHandler {
 
   /**
    * Receives events from a JSON object and processes them accordingly.
+   * History arrives in chunks, each one rendered as soon as it is received.
    *
    * @param json The JSON object containing the events.
    * @return A string representing the result of processing the events.
@@ -147,6 +150,9 @@ public class EventsHandler {
           break;
       }
     }
+    if (json.has("more") && !json.getBoolean("more")) {
+      logger.info("History received!");
+    }
     return null;
   }
 
@@ -162,7 +168,7 @@ public class EventsHandler {
       json.put("command", "joinGroup");
       json.put("group", ip);
       json.put("username", SharedObject.getUsername());
-      SharedObject.getDirectOut().println(json);
+      SharedObject.sendDirect(json.toString());
     } catch (JSONException e) {
       logger.severe("Error announcing join group! " + e.getMessage());
     }
@@ -25,6 +25,16 @@ public class Protocol {
       JSONObject json = new JSONObject(input);
       JSONObject response = new JSONObject();
 
+      if (json.has("response") && json.getString("response").equals("BUSY")) {
+        logger.warning("Server is busy, the last command was rejected!");
+        return null;
+      }
+
+      if (json.has("response") && json.getString("response").equals("RATE_LIMITED")) {
+        logger.warning("Sending too fast, the last command was rejected!");
+        return null;
+      }
+
       if (json.has("response")) {
         logger.info("Response Received (ignored): " + json.toString());
         return null;
@@ -38,6 +48,7 @@ public class Protocol {
 
       switch (json.getString("command")) {
         case "history":
+        case "events":
           EventsHandler.receiveEvents(json);
           return null;
         case "message":
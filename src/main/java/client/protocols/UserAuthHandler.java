@@ -5,13 +5,27 @@ import java.io.IOException;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import client.Client;
 import client.dataStructures.SharedObject;
+import shared.enumerations.Framing;
 
 /**
  * This class handles user authentication operations such as registration and login.
  */
 public class UserAuthHandler {
 
+  /**
+   * Switches to the framing chosen by the server, if the server supports framing negotiation.
+   *
+   * @param response The successful authentication response from the server.
+   * @throws JSONException If there is an error in JSON processing.
+   */
+  private static void negotiateFraming(JSONObject response) throws JSONException {
+    if (response.has("framing")) {
+      SharedObject.setFraming(Framing.valueOf(response.getString("framing")));
+    }
+  }
+
   // #region Register
 
   /**
@@ -34,12 +48,15 @@ public class UserAuthHandler {
     json.put("name", name);
     json.put("role", role);
 
-    SharedObject.getDirectOut().println(json);
+    json.put("framing", Client.FRAMING.toString());
 
-    JSONObject response = new JSONObject(SharedObject.getDirectIn().readLine());
+    SharedObject.sendDirect(json.toString());
+
+    JSONObject response = new JSONObject(SharedObject.receiveDirect());
 
     if (response.getString("response").equals("OK")) {
       SharedObject.setUsername(username);
+      negotiateFraming(response);
     }
     return response.getString("response").toString();
   }
@@ -63,12 +80,15 @@ public class UserAuthHandler {
     json.put("username", username);
     json.put("password", password);
 
-    SharedObject.getDirectOut().println(json);
+    json.put("framing", Client.FRAMING.toString());
+
+    SharedObject.sendDirect(json.toString());
 
-    JSONObject response = new JSONObject(SharedObject.getDirectIn().readLine());
+    JSONObject response = new JSONObject(SharedObject.receiveDirect());
 
     if (response.getString("response").equals("OK")) {
       SharedObject.setUsername(username);
+      negotiateFraming(response);
     }
     return response.getString("response").toString();
   }
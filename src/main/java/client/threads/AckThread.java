@@ -0,0 +1,54 @@
+package client.threads;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import client.Client;
+import client.dataStructures.SharedObject;
+
+/**
+ * This class represents a thread that acknowledges the events processed by the client.
+ * Acknowledgements are sent in batches: every interval, the sequence numbers of the events processed since the last
+ * acknowledgement are sent to the server, which moves its watermark once no event below it is left unacknowledged.
+ */
+public class AckThread implements Runnable {
+  private static final Logger logger = Logger.getLogger(AckThread.class.getName());
+
+  /**
+   * Constructs a new AckThread.
+   */
+  public AckThread() {
+  }
+
+  /**
+   * Runs the thread, acknowledging the processed events until it is interrupted.
+   */
+  @Override
+  public void run() {
+    while (true) {
+      try {
+        Thread.sleep(Client.ACK_INTERVAL);
+      } catch (InterruptedException ignored) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      List<Long> sequences = SharedObject.drainProcessedSequences();
+      if (sequences.isEmpty()) {
+        continue;
+      }
+      try {
+        JSONObject json = new JSONObject();
+        json.put("command", "ack");
+        json.put("sequences", new JSONArray(sequences));
+        SharedObject.sendDirect(json.toString());
+      } catch (JSONException | IOException error) {
+        logger.severe("Error Acknowledging Events! " + error.getMessage());
+      }
+    }
+  }
+}
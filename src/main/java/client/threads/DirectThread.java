@@ -1,25 +1,28 @@
 package client.threads;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.logging.Logger;
 
+import client.Client;
 import client.dataStructures.SharedObject;
 import client.protocols.Protocol;
 import shared.enumerations.ConnectionType;
+import shared.enumerations.Framing;
+import shared.protocols.Frames;
 
 /**
  * Represents a thread that handles direct connections with clients.
  */
 public class DirectThread implements Runnable {
   private static final Logger logger = Logger.getLogger(DirectThread.class.getName());
-  private static final ExecutorService executorService = Executors.newFixedThreadPool(50);
+  private static final ExecutorService executorService = Client.EXECUTION_MODE.newExecutorService(50);
 
   /**
    * Returns the executor service used by the DirectThread.
@@ -50,10 +53,11 @@ public class DirectThread implements Runnable {
           public void run() {
             logger.info("New Direct Thread Created! " + socket.getInetAddress() + " " + socket.getPort());
             try {
-                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-                PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+                Framing framing = SharedObject.getFraming();
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
                 while (true) {
-                String input = in.readLine();
+                String input = Frames.read(in, framing);
                 if (input == null) {
                   in.close();
                   out.close();
@@ -64,7 +68,7 @@ public class DirectThread implements Runnable {
                 if (output == null) {
                   continue;
                 }
-                out.println(output);
+                Frames.write(out, framing, output);
               }
             } catch (IOException io) {
               logger.severe("Error Handling Direct Connection! " + io.getMessage());
@@ -0,0 +1,42 @@
+package client.threads;
+
+import java.io.IOException;
+import java.util.logging.Logger;
+
+import client.dataStructures.SharedObject;
+import client.protocols.Protocol;
+import shared.enumerations.ConnectionType;
+
+/**
+ * This class represents a thread that reads the responses sent by the server over the direct connection
+ * once the user is authenticated.
+ */
+public class ResponseThread implements Runnable {
+  private static final Logger logger = Logger.getLogger(ResponseThread.class.getName());
+
+  /**
+   * Constructs a new ResponseThread.
+   */
+  public ResponseThread() {
+  }
+
+  /**
+   * Runs the thread, processing responses until the server closes the connection.
+   */
+  @Override
+  public void run() {
+    while (true) {
+      try {
+        String input = SharedObject.receiveDirect();
+        if (input == null) {
+          logger.severe("Direct Connection Closed by the Server!");
+          return;
+        }
+        Protocol.processInput(ConnectionType.DIRECT, input);
+      } catch (IOException io) {
+        logger.severe("Error Reading Direct Response! " + io.getMessage());
+        return;
+      }
+    }
+  }
+}
@@ -1,22 +1,30 @@
 package server;
 
 import java.io.IOException;
-import java.net.DatagramSocket;
 import java.net.InetAddress;
-import java.net.MulticastSocket;
-import java.net.ServerSocket;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ServerSocketChannel;
 import java.util.logging.Logger;
 
+import server.dataStructures.DatagramQueue;
 import server.dataStructures.SharedObject;
 import server.threads.ActiveUsersThread;
+import server.threads.BoundedExecutor;
 import server.threads.BroadcastThread;
 import server.threads.DataPersistenceThread;
-import server.threads.DirectThread;
+import server.threads.DatagramWorkerThread;
+import server.threads.DirectSelectorThread;
 import server.threads.EventsThread;
+import server.threads.MetricsThread;
 import server.threads.MulticastThread;
+import server.threads.PushChannelReaperThread;
 import server.threads.RequestsStatsThread;
+import shared.enumerations.ConnectionType;
+import shared.enumerations.ExecutionMode;
+import shared.enumerations.Role;
 
 /**
  * The Server class represents the main server application.
@@ -25,13 +33,58 @@ import server.threads.RequestsStatsThread;
  */
 public class Server {
   private static final Logger logger = Logger.getLogger(Server.class.getName());
-  private static final ExecutorService executorService = Executors.newFixedThreadPool(100);
 
   public static final int BUFFER_SIZE = 1024;
+  public static final int DATAGRAM_QUEUE_CAPACITY = 256;
+  public static final int DATAGRAM_WORKERS = 4;
   public static final int SERVER_PORT = 9000;
   public static final int USER_PORT = 9001;
   public static final int MULTICAST_PORT = 9002;
+  // Network interface to join multicast groups on, by name; the system's route to each group when unset
+  public static final String MULTICAST_INTERFACE = System.getProperty("multicastInterface");
   public static final String BROADCAST_ADDRESS = "192.168.5.255";
+  public static final int PUSH_POOL_SIZE = 4;
+  public static final long PUSH_POOL_IDLE_CHECK = 5000;
+  public static final long PUSH_POOL_IDLE_TIMEOUT = 60000;
+  public static final long PUSH_POOL_ACQUIRE_TIMEOUT = 5000;
+  public static final int PUSH_CONNECT_TIMEOUT = 3000;
+  public static final int PUSH_ANSWER_TIMEOUT = 60000;
+  public static final int DELIVERY_THREADS = 16;
+  public static final int DELIVERY_MAX_ATTEMPTS = 6;
+  public static final long DELIVERY_RETRY_BASE = 1000;
+  public static final long DELIVERY_RETRY_MAX = 60000;
+  public static final long DELIVERY_COALESCE_WINDOW = 20;
+  public static final int DELIVERY_COALESCE_SIZE = 32;
+  public static final int HISTORY_CHUNK_SIZE = 100;
+  public static final Role DELIVERY_HIGH_PRIORITY_ROLE = Role.CORONEL;
+  public static final int DELIVERY_HIGH_BURST = 8;
+  public static final long SNAPSHOT_INTERVAL = 60000;
+  public static final long WAL_RETRY_BASE = 100;
+  public static final long WAL_RETRY_MAX = 10000;
+  public static final int EVENT_SEGMENT_SIZE = 16 * 1024 * 1024;
+  public static final int EVENT_INDEX_CHUNK_SIZE = 65536;
+  public static final long PARTITION_IDLE_TIMEOUT = 600000;
+  public static final ExecutionMode EXECUTION_MODE = ExecutionMode.fromProperty();
+  public static final int DIRECT_SESSION_QUEUE_CAPACITY = 64;
+  public static final int DIRECT_SELECTOR_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+  public static final int EXECUTOR_THREADS = 100;
+  public static final int EXECUTOR_CAPACITY = 1000;
+  public static final int EVENTS_EXECUTOR_THREADS = 50;
+  public static final int EVENTS_EXECUTOR_CAPACITY = 500;
+  // Commands per second and burst size per role, from PRACA to GENERAL
+  public static final int[] RATE_LIMITS = { 2, 2, 3, 3, 4, 5, 5 };
+  public static final int[] RATE_LIMIT_BURSTS = { 5, 5, 8, 8, 10, 15, 15 };
+
+  private static final BoundedExecutor executorService = new BoundedExecutor("Server executor", EXECUTION_MODE, EXECUTOR_THREADS, EXECUTOR_CAPACITY);
+
+  /**
+   * Returns the executor used by the server for its background threads and per-login tasks.
+   *
+   * @return the executor of the server
+   */
+  public static BoundedExecutor getExecutorService() {
+    return executorService;
+  }
 
   /**
    * The main method of the Server class.
@@ -42,38 +95,63 @@ public class Server {
   public static void main(String[] args) {
     try {
       SharedObject.loadData();
-    } catch (Exception ignored) {
+    } catch (Exception e) {
+      // Starting without the saved data would overwrite it with an empty copy at the next save
+      logger.severe("Error Loading Data! " + e.getMessage());
+      System.exit(1);
     }
     
     executorService.execute(() -> handleDirect(SERVER_PORT));
 
     try {
-      SharedObject.setMulticastSocket(new MulticastSocket(MULTICAST_PORT));
-      DatagramSocket broadcastSocket = new DatagramSocket(USER_PORT, InetAddress.getByName(BROADCAST_ADDRESS));
-      broadcastSocket.setBroadcast(true);
-      SharedObject.setBroadcastSocket(broadcastSocket);
+      SharedObject.setMulticastChannel(DatagramChannel.open(StandardProtocolFamily.INET)
+          .setOption(StandardSocketOptions.SO_REUSEADDR, true)
+          .bind(new InetSocketAddress(MULTICAST_PORT)));
+      SharedObject.setBroadcastChannel(DatagramChannel.open(StandardProtocolFamily.INET)
+          .setOption(StandardSocketOptions.SO_BROADCAST, true)
+          .bind(new InetSocketAddress(InetAddress.getByName(BROADCAST_ADDRESS), USER_PORT)));
     } catch (IOException io) {
       logger.severe("Error Creating Sockets! " + io.getMessage());
       close();
     }
 
-    executorService.execute(new BroadcastThread());
-    executorService.execute(new MulticastThread());
+    DatagramQueue broadcastQueue = new DatagramQueue(DATAGRAM_QUEUE_CAPACITY, BUFFER_SIZE, DATAGRAM_WORKERS);
+    DatagramQueue multicastQueue = new DatagramQueue(DATAGRAM_QUEUE_CAPACITY, BUFFER_SIZE, DATAGRAM_WORKERS);
+    // A blocking channel serves one receive at a time, so each channel is drained by a single receiver
+    executorService.execute(new BroadcastThread(broadcastQueue));
+    executorService.execute(new MulticastThread(multicastQueue));
+    // Each worker drains its own partition, so the datagrams of a sender are processed in order
+    for (int i = 0; i < DATAGRAM_WORKERS; i++) {
+      executorService.execute(new DatagramWorkerThread(ConnectionType.BROADCAST, SharedObject.getBroadcastChannel(), broadcastQueue, i));
+      executorService.execute(new DatagramWorkerThread(ConnectionType.MULTICAST, SharedObject.getMulticastChannel(), multicastQueue, i));
+    }
     executorService.execute(new EventsThread());
     executorService.execute(new ActiveUsersThread());
     executorService.execute(new RequestsStatsThread());
     executorService.execute(new DataPersistenceThread());
+    executorService.execute(new MetricsThread(broadcastQueue, multicastQueue));
+    executorService.execute(new PushChannelReaperThread());
   }
 
   /**
    * Handles direct connections on the specified port.
+   * Accepted connections are spread over a few selector threads that own them for their whole session.
+   * The selector threads are always platform threads, as they never block on a single connection.
    *
    * @param port The port number for direct connections.
    */
   public static void handleDirect(int port) {
-    try (ServerSocket serverSocket = new ServerSocket(port)) {
+    try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+      serverChannel.bind(new InetSocketAddress(port));
+      DirectSelectorThread[] selectorThreads = new DirectSelectorThread[DIRECT_SELECTOR_THREADS];
+      for (int i = 0; i < selectorThreads.length; i++) {
+        selectorThreads[i] = new DirectSelectorThread();
+        new Thread(selectorThreads[i], "direct-selector-" + i).start();
+      }
+      int next = 0;
       while (true) {
-        executorService.execute(new DirectThread(serverSocket.accept()));
+        selectorThreads[next].register(serverChannel.accept());
+        next = (next + 1) % selectorThreads.length;
       }
     } catch (Exception e) {
       logger.severe("Error Handling Direct Connection! " + e.getMessage());
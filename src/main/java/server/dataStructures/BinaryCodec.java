@@ -0,0 +1,476 @@
+package server.dataStructures;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+import server.dataStructures.classes.MessageImpl;
+import server.dataStructures.classes.RequestImpl;
+import server.dataStructures.classes.UserImpl;
+import server.dataStructures.interfaces.Event;
+import server.dataStructures.interfaces.Message;
+import server.dataStructures.interfaces.Request;
+import server.dataStructures.interfaces.User;
+import shared.enumerations.Role;
+
+/**
+ * The BinaryCodec class encodes the saved data structures and events in a compact, versioned binary format,
+ * in place of default Java serialization.
+ * An encoding starts with the version of the format, which is never the first byte of a serialized Java stream,
+ * so data saved before the codec existed is still recognized.
+ * Values are tagged with their type; numbers are variable-length, dates are epoch milliseconds
+ * and strings are length-prefixed UTF-8.
+ * The first time a user appears in an encoding it is given a number, which every later appearance refers to.
+ * Users are written in full only where they are saved themselves; anywhere else only their username is written,
+ * and it is resolved to the loaded user as the encoding is read.
+ */
+public class BinaryCodec {
+  public static final int VERSION = 1;
+
+  private static final int NULL = 0;
+  private static final int LONG = 1;
+  private static final int INTEGER = 2;
+  private static final int STRING = 3;
+  private static final int USER = 4;
+  private static final int LIST = 5;
+  private static final int SET = 6;
+  private static final int SORTED_SET = 7;
+  private static final int MAP = 8;
+  private static final int MESSAGE = 9;
+  private static final int REQUEST = 10;
+  private static final int EVENT_LOG = 11;
+
+  private DataOutputStream out;
+  private DataInputStream in;
+  private boolean userRecords;
+  private Function<String, User> users;
+  private final Map<String, Integer> userNumbers = new HashMap<>();
+  private final List<User> numberedUsers = new ArrayList<>();
+
+  /**
+   * Constructs a codec for a single encoding, which numbers the users appearing in it.
+   */
+  private BinaryCodec() {
+  }
+
+  /**
+   * Tells whether data starts with an encoding of this codec, rather than with a serialized Java stream.
+   *
+   * @param first the first byte of the data
+   * @return true if the data was written by this codec, false otherwise
+   */
+  public static boolean isEncoded(int first) {
+    return first == VERSION;
+  }
+
+  /**
+   * Encodes a value to a stream.
+   *
+   * @param output      the stream to write to
+   * @param value       the value to be encoded
+   * @param userRecords true to write users in full, false to write only their username
+   * @throws IOException if an I/O error occurs, or if the value holds a type the codec does not support
+   */
+  public static void write(OutputStream output, Object value, boolean userRecords) throws IOException {
+    BinaryCodec codec = new BinaryCodec();
+    codec.out = new DataOutputStream(output);
+    codec.userRecords = userRecords;
+    codec.out.writeByte(VERSION);
+    codec.writeValue(value);
+    codec.out.flush();
+  }
+
+  /**
+   * Decodes a value from a stream.
+   *
+   * @param input the stream to read from
+   * @param users resolves a username to the loaded user, or to null if there is none
+   * @return the decoded value
+   * @throws IOException if an I/O error occurs, if the version is unknown or if a user cannot be resolved
+   */
+  public static Object read(InputStream input, Function<String, User> users) throws IOException {
+    BinaryCodec codec = new BinaryCodec();
+    codec.in = new DataInputStream(input);
+    codec.users = users;
+    int version = codec.in.readUnsignedByte();
+    if (version != VERSION) {
+      throw new IOException("Unknown encoding version " + version + "!");
+    }
+    return codec.readValue();
+  }
+
+  /**
+   * Reads a saved object from a file, decoding it,
+   * or deserializing it if it was saved with default Java serialization before the codec existed.
+   *
+   * @param file  the file to be read
+   * @param users resolves a username to the loaded user, or to null if there is none
+   * @return the saved object
+   * @throws IOException            if an I/O error occurs while reading the file.
+   * @throws ClassNotFoundException if the class of a serialized object cannot be found.
+   */
+  public static Object readFile(File file, Function<String, User> users) throws IOException, ClassNotFoundException {
+    try (BufferedInputStream in = new BufferedInputStream(new FileInputStream(file))) {
+      in.mark(1);
+      int first = in.read();
+      in.reset();
+      if (isEncoded(first)) {
+        return read(in, users);
+      }
+      return new ObjectInputStream(in).readObject();
+    }
+  }
+
+  /**
+   * Encodes an object to a file, replacing it atomically: the object is written to a temporary file,
+   * synced and renamed, so a crash leaves either the old or the new file, never a partial one.
+   *
+   * @param file        the file to be written
+   * @param value       the object to be saved
+   * @param userRecords true to save users in full, false to save only their username
+   * @throws IOException if an I/O error occurs while writing the file.
+   */
+  public static void writeFile(File file, Object value, boolean userRecords) throws IOException {
+    File temporary = new File(file.getPath() + ".tmp");
+    try (FileOutputStream fileOut = new FileOutputStream(temporary)) {
+      BufferedOutputStream out = new BufferedOutputStream(fileOut);
+      write(out, value, userRecords);
+      out.flush();
+      fileOut.getFD().sync();
+    }
+    Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  //#region Encoding
+  /**
+   * Writes a value, preceded by the tag of its type.
+   *
+   * @param value the value to be written
+   * @throws IOException if an I/O error occurs, or if the type of the value is not supported
+   */
+  private void writeValue(Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(NULL);
+    } else if (value instanceof Long) {
+      out.writeByte(LONG);
+      writeSigned((Long) value);
+    } else if (value instanceof Integer) {
+      out.writeByte(INTEGER);
+      writeSigned((Integer) value);
+    } else if (value instanceof String) {
+      out.writeByte(STRING);
+      writeString((String) value);
+    } else if (value instanceof User) {
+      out.writeByte(USER);
+      writeUser((User) value);
+    } else if (value instanceof Event) {
+      writeEvent((Event) value);
+    } else if (value instanceof EventLog) {
+      out.writeByte(EVENT_LOG);
+      long[] sequences = ((EventLog) value).getSequences(0);
+      writeUnsigned(sequences.length);
+      long previous = 0;
+      for (long sequence : sequences) {
+        writeSigned(sequence - previous);
+        previous = sequence;
+      }
+    } else if (value instanceof Map) {
+      out.writeByte(MAP);
+      writeUnsigned(((Map<?, ?>) value).size());
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        writeValue(entry.getKey());
+        writeValue(entry.getValue());
+      }
+    } else if (value instanceof SortedSet) {
+      writeCollection(SORTED_SET, (Collection<?>) value);
+    } else if (value instanceof Set) {
+      writeCollection(SET, (Collection<?>) value);
+    } else if (value instanceof List) {
+      writeCollection(LIST, (Collection<?>) value);
+    } else {
+      throw new IOException("Cannot encode " + value.getClass().getName() + "!");
+    }
+  }
+
+  /**
+   * Writes a collection as its tag, its size and its elements.
+   *
+   * @param tag    the tag of the collection type
+   * @param values the elements of the collection
+   * @throws IOException if an I/O error occurs, or if the type of an element is not supported
+   */
+  private void writeCollection(int tag, Collection<?> values) throws IOException {
+    out.writeByte(tag);
+    writeUnsigned(values.size());
+    for (Object value : values) {
+      writeValue(value);
+    }
+  }
+
+  /**
+   * Writes the number of a user, followed by the user itself the first time it appears.
+   *
+   * @param user the user to be written
+   * @throws IOException if an I/O error occurs
+   */
+  private void writeUser(User user) throws IOException {
+    Integer number = userNumbers.get(user.getUsername());
+    if (number != null) {
+      writeUnsigned(number);
+      return;
+    }
+    userNumbers.put(user.getUsername(), userNumbers.size());
+    writeUnsigned(userNumbers.size() - 1);
+    writeString(user.getUsername());
+    out.writeBoolean(userRecords);
+    if (userRecords) {
+      writeString(user.getName());
+      writeString(user.getPassword());
+      writeString(user.getRole().name());
+    }
+  }
+
+  /**
+   * Writes an event, with its users written by number and its date in epoch milliseconds.
+   *
+   * @param event the event to be written
+   * @throws IOException if an I/O error occurs, or if the event is neither a message nor a request
+   */
+  private void writeEvent(Event event) throws IOException {
+    if (event instanceof Request) {
+      out.writeByte(REQUEST);
+    } else if (event instanceof Message) {
+      out.writeByte(MESSAGE);
+    } else {
+      throw new IOException("Cannot encode " + event.getClass().getName() + "!");
+    }
+    writeUnsigned(event.getSequence());
+    writeValue(event.getSender());
+    writeValue(event.getReceiver());
+    writeString(event.getContent());
+    writeSigned(event.getDate().getTime());
+    if (event instanceof Request) {
+      writeValue(((Request) event).getAccepter());
+    }
+  }
+
+  /**
+   * Writes a string as its UTF-8 length plus one, followed by its UTF-8 bytes; a zero length stands for null.
+   *
+   * @param value the string to be written, or null
+   * @throws IOException if an I/O error occurs
+   */
+  private void writeString(String value) throws IOException {
+    if (value == null) {
+      writeUnsigned(0);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeUnsigned(bytes.length + 1L);
+    out.write(bytes);
+  }
+
+  /**
+   * Writes a number that may be negative, zigzag-encoded so small magnitudes take few bytes.
+   *
+   * @param value the number to be written
+   * @throws IOException if an I/O error occurs
+   */
+  private void writeSigned(long value) throws IOException {
+    writeUnsigned((value << 1) ^ (value >> 63));
+  }
+
+  /**
+   * Writes a non-negative number seven bits at a time, the high bit of each byte telling whether more follow.
+   *
+   * @param value the number to be written
+   * @throws IOException if an I/O error occurs
+   */
+  private void writeUnsigned(long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+  //#endregion
+
+  //#region Decoding
+  /**
+   * Reads a value written by writeValue.
+   *
+   * @return the value read
+   * @throws IOException if an I/O error occurs, or if the tag is unknown
+   */
+  private Object readValue() throws IOException {
+    int tag = in.readUnsignedByte();
+    switch (tag) {
+      case NULL:
+        return null;
+      case LONG:
+        return readSigned();
+      case INTEGER:
+        return (int) readSigned();
+      case STRING:
+        return readString();
+      case USER:
+        return readUser();
+      case MESSAGE:
+      case REQUEST:
+        return readEvent(tag);
+      case EVENT_LOG:
+        EventLog log = new EventLog();
+        long sequence = 0;
+        for (long i = readUnsigned(); i > 0; i--) {
+          sequence += readSigned();
+          log.append(sequence);
+        }
+        return log;
+      case MAP:
+        long entries = readUnsigned();
+        Map<Object, Object> map = new HashMap<>();
+        for (long i = 0; i < entries; i++) {
+          map.put(readValue(), readValue());
+        }
+        return map;
+      case SORTED_SET:
+        return readCollection(new TreeSet<>());
+      case SET:
+        return readCollection(new HashSet<>());
+      case LIST:
+        return readCollection(new ArrayList<>());
+      default:
+        throw new IOException("Unknown value type " + tag + "!");
+    }
+  }
+
+  /**
+   * Reads the size and the elements of a collection into an empty one.
+   *
+   * @param values the empty collection to be filled
+   * @return the filled collection
+   * @throws IOException if an I/O error occurs
+   */
+  private Collection<Object> readCollection(Collection<Object> values) throws IOException {
+    for (long i = readUnsigned(); i > 0; i--) {
+      values.add(readValue());
+    }
+    return values;
+  }
+
+  /**
+   * Reads a user written by writeUser, resolving a user seen for the first time to the loaded one.
+   * A user written in full is created if it is not loaded yet.
+   *
+   * @return the user read
+   * @throws IOException if an I/O error occurs, or if a user written by username alone is not loaded
+   */
+  private User readUser() throws IOException {
+    int number = (int) readUnsigned();
+    if (number < numberedUsers.size()) {
+      return numberedUsers.get(number);
+    }
+    String username = readString();
+    User user = users.apply(username);
+    if (in.readBoolean()) {
+      String name = readString();
+      String password = readString();
+      Role role = Role.valueOf(readString());
+      if (user == null) {
+        user = new UserImpl(username, name, password, role);
+      }
+    }
+    if (user == null) {
+      throw new IOException("Unknown user " + username + "!");
+    }
+    numberedUsers.add(user);
+    return user;
+  }
+
+  /**
+   * Reads an event written by writeEvent, keeping its sequence number.
+   *
+   * @param tag the tag of the event type
+   * @return the event read
+   * @throws IOException if an I/O error occurs
+   */
+  private Event readEvent(int tag) throws IOException {
+    long sequence = readUnsigned();
+    User sender = (User) readValue();
+    Object receiver = readValue();
+    String content = readString();
+    Date date = new Date(readSigned());
+    if (tag == REQUEST) {
+      return new RequestImpl(sequence, sender, receiver, content, date, (User) readValue());
+    }
+    return new MessageImpl(sequence, sender, receiver, content, date);
+  }
+
+  /**
+   * Reads a string written by writeString.
+   *
+   * @return the string read, or null
+   * @throws IOException if an I/O error occurs
+   */
+  private String readString() throws IOException {
+    long length = readUnsigned();
+    if (length == 0) {
+      return null;
+    }
+    byte[] bytes = new byte[(int) (length - 1)];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Reads a number written by writeSigned.
+   *
+   * @return the number read
+   * @throws IOException if an I/O error occurs
+   */
+  private long readSigned() throws IOException {
+    long value = readUnsigned();
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * Reads a number written by writeUnsigned.
+   *
+   * @return the number read
+   * @throws IOException if an I/O error occurs, or if the number is longer than 64 bits
+   */
+  private long readUnsigned() throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.readUnsignedByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed variable-length number!");
+  }
+  //#endregion
+}
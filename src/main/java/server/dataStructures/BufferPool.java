@@ -0,0 +1,48 @@
+package server.dataStructures;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The BufferPool class represents a fixed set of reusable direct byte buffers.
+ * Buffers are allocated once, lent out with acquire and handed back with release,
+ * so receiving data does not allocate a new buffer each time.
+ */
+public class BufferPool {
+  private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Constructs a new BufferPool and allocates all of its buffers.
+   *
+   * @param count      the number of buffers in the pool
+   * @param bufferSize the capacity of each buffer, in bytes
+   */
+  public BufferPool(int count, int bufferSize) {
+    for (int i = 0; i < count; i++) {
+      buffers.add(ByteBuffer.allocateDirect(bufferSize));
+    }
+  }
+
+  /**
+   * Lends a cleared buffer from the pool.
+   *
+   * @return a buffer, or null if every buffer is currently lent out
+   */
+  public ByteBuffer acquire() {
+    ByteBuffer buffer = buffers.poll();
+    if (buffer != null) {
+      buffer.clear();
+    }
+    return buffer;
+  }
+
+  /**
+   * Returns a buffer to the pool.
+   *
+   * @param buffer the buffer to be returned
+   */
+  public void release(ByteBuffer buffer) {
+    buffers.add(buffer);
+  }
+}
@@ -0,0 +1,152 @@
+package server.dataStructures;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The DatagramQueue class hands received datagrams from receiver threads to worker threads.
+ * Datagrams are held in pooled buffers and the queue is bounded,
+ * so a datagram that finds no free buffer or no room in the queue is dropped and counted.
+ * The queue is split into partitions, one per worker, and every datagram from a sender address goes to the same one,
+ * so the datagrams of a sender are processed one at a time in the order they were received.
+ */
+public class DatagramQueue {
+  private final BufferPool bufferPool;
+  private final List<BlockingQueue<Datagram>> partitions = new ArrayList<>();
+  private final AtomicLong received = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+
+  /**
+   * Represents a received datagram waiting to be processed.
+   */
+  public static class Datagram {
+    private final ByteBuffer buffer;
+    private final SocketAddress sender;
+
+    private Datagram(ByteBuffer buffer, SocketAddress sender) {
+      this.buffer = buffer;
+      this.sender = sender;
+    }
+
+    /**
+     * Returns the buffer holding the datagram, flipped to its received bytes.
+     *
+     * @return the buffer of the datagram
+     */
+    public ByteBuffer getBuffer() {
+      return buffer;
+    }
+
+    /**
+     * Returns the address the datagram was sent from.
+     *
+     * @return the address of the sender
+     */
+    public SocketAddress getSender() {
+      return sender;
+    }
+  }
+
+  /**
+   * Constructs a new DatagramQueue with its own buffer pool.
+   *
+   * @param capacity   the number of datagrams that may be buffered, in the queue or being processed
+   * @param bufferSize the maximum size of a datagram, in bytes
+   * @param partitions the number of partitions, each drained by a single worker
+   */
+  public DatagramQueue(int capacity, int bufferSize, int partitions) {
+    this.bufferPool = new BufferPool(capacity, bufferSize);
+    for (int i = 0; i < partitions; i++) {
+      this.partitions.add(new ArrayBlockingQueue<>(capacity));
+    }
+  }
+
+
+  /**
+   * Lends a buffer to receive a datagram into.
+   *
+   * @return a cleared buffer, or null if every buffer is in use, in which case a drop is counted
+   */
+  public ByteBuffer acquireBuffer() {
+    ByteBuffer buffer = bufferPool.acquire();
+    if (buffer == null) {
+      dropped.incrementAndGet();
+    }
+    return buffer;
+  }
+
+  /**
+   * Queues a received datagram for processing, in the partition of its sender's address.
+   *
+   * @param buffer the buffer holding the datagram, flipped to its received bytes
+   * @param sender the address the datagram was sent from
+   * @return true if the datagram was queued, false if it was dropped because the queue is full
+   */
+  public boolean offer(ByteBuffer buffer, SocketAddress sender) {
+    received.incrementAndGet();
+    int partition = Math.floorMod(((InetSocketAddress) sender).getAddress().hashCode(), partitions.size());
+    if (partitions.get(partition).offer(new Datagram(buffer, sender))) {
+      return true;
+    }
+    dropped.incrementAndGet();
+    bufferPool.release(buffer);
+    return false;
+  }
+
+  /**
+   * Waits for the next datagram of a partition to process.
+   *
+   * @param partition the index of the partition
+   * @return the next datagram, whose buffer must be handed back with release
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public Datagram take(int partition) throws InterruptedException {
+    return partitions.get(partition).take();
+  }
+
+  /**
+   * Returns a buffer to the pool once its datagram is processed or discarded.
+   *
+   * @param buffer the buffer to be returned
+   */
+  public void release(ByteBuffer buffer) {
+    bufferPool.release(buffer);
+  }
+
+  /**
+   * Returns the number of datagrams waiting to be processed.
+   *
+   * @return the number of queued datagrams
+   */
+  public int getQueued() {
+    int queued = 0;
+    for (BlockingQueue<Datagram> datagrams : partitions) {
+      queued += datagrams.size();
+    }
+    return queued;
+  }
+
+  /**
+   * Returns the number of datagrams received into pooled buffers since the server started.
+   *
+   * @return the number of received datagrams
+   */
+  public long getReceived() {
+    return received.get();
+  }
+
+  /**
+   * Returns the number of datagrams dropped since the server started.
+   *
+   * @return the number of dropped datagrams
+   */
+  public long getDropped() {
+    return dropped.get();
+  }
+}
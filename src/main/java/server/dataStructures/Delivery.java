@@ -0,0 +1,47 @@
+package server.dataStructures;
+
+import server.dataStructures.interfaces.Event;
+
+/**
+ * The Delivery class tracks the attempts made to deliver an event to a user.
+ */
+public class Delivery {
+  private final Event event;
+  private int attempts;
+
+  /**
+   * Constructs a new Delivery of the given event, with no attempts made yet.
+   *
+   * @param event the event to be delivered
+   */
+  public Delivery(Event event) {
+    this.event = event;
+  }
+
+  /**
+   * Returns the event to be delivered.
+   *
+   * @return the event
+   */
+  public Event getEvent() {
+    return event;
+  }
+
+  /**
+   * Returns the number of failed attempts made so far.
+   *
+   * @return the number of failed attempts
+   */
+  public int getAttempts() {
+    return attempts;
+  }
+
+  /**
+   * Records a failed attempt.
+   *
+   * @return the number of failed attempts made so far, including this one
+   */
+  public int failed() {
+    return ++attempts;
+  }
+}
@@ -0,0 +1,115 @@
+package server.dataStructures;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import server.dataStructures.interfaces.Event;
+import server.dataStructures.interfaces.Request;
+import shared.enumerations.Role;
+
+/**
+ * The DeliveryLanes class queues the events waiting to be dispatched in two lanes.
+ * Requests and events sent by users of a high enough role go to the high lane and are taken first.
+ * To keep the low lane moving, one low event is taken after every burst of high events while both lanes are busy.
+ * Events keep their order within a lane, but a user can receive a high event before an older low one,
+ * so clients must not assume events arrive in sequence order.
+ */
+public class DeliveryLanes {
+  private final Queue<Event> high = new ConcurrentLinkedQueue<>();
+  private final Queue<Event> low = new ConcurrentLinkedQueue<>();
+  private final Semaphore available = new Semaphore(0);
+  private final AtomicInteger highStreak = new AtomicInteger();
+  private final Role highPriorityRole;
+  private final int highBurst;
+
+  /**
+   * Constructs new, empty DeliveryLanes.
+   *
+   * @param highPriorityRole the lowest role whose events go to the high lane
+   * @param highBurst        the number of high events taken in a row before a waiting low event is taken
+   */
+  public DeliveryLanes(Role highPriorityRole, int highBurst) {
+    this.highPriorityRole = highPriorityRole;
+    this.highBurst = highBurst;
+  }
+
+  /**
+   * Tells whether an event belongs to the high lane.
+   *
+   * @param event the event to be classified
+   * @return true if the event is a request or was sent by a user of a high enough role, false otherwise
+   */
+  public boolean isHighPriority(Event event) {
+    if (event instanceof Request) {
+      return true;
+    }
+    return event.getSender() != null && Role.getIndex(event.getSender().getRole()) >= Role.getIndex(highPriorityRole);
+  }
+
+  /**
+   * Adds an event to its lane, waking up a thread waiting for one.
+   *
+   * @param event the event to be added
+   */
+  public void add(Event event) {
+    if (isHighPriority(event)) {
+      high.add(event);
+    } else {
+      low.add(event);
+    }
+    available.release();
+  }
+
+  /**
+   * Adds every event of a collection to its lane.
+   *
+   * @param events the events to be added
+   */
+  public void addAll(List<Event> events) {
+    for (Event event : events) {
+      add(event);
+    }
+  }
+
+  /**
+   * Removes the next event to be dispatched, waiting until there is one.
+   *
+   * @return the next event
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public Event take() throws InterruptedException {
+    available.acquire();
+    while (true) {
+      Event event;
+      if (highStreak.get() >= highBurst && (event = low.poll()) != null) {
+        highStreak.set(0);
+        return event;
+      }
+      if ((event = high.poll()) != null) {
+        highStreak.incrementAndGet();
+        return event;
+      }
+      if ((event = low.poll()) != null) {
+        highStreak.set(0);
+        return event;
+      }
+      // Another taker emptied the lane checked first, the event matching the permit is in the other one
+      Thread.onSpinWait();
+    }
+  }
+
+  /**
+   * Returns the events waiting in the lanes.
+   *
+   * @return a copy of the events, high lane first
+   */
+  public List<Event> getEvents() {
+    List<Event> events = new ArrayList<>(high);
+    events.addAll(low);
+    return events;
+  }
+}
@@ -0,0 +1,230 @@
+package server.dataStructures;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * The EventIndex class maps the sequence number of each stored event to its offset in the event store.
+ * The index is split into chunks of consecutive sequence numbers, each saved to its own file.
+ * A chunk is only read from disk the first time one of its sequence numbers is looked up or added,
+ * so opening the index takes the same time whatever the number of events,
+ * and chunks that are saved and were not used for a while can be evicted from memory.
+ */
+public class EventIndex {
+  private final File directory;
+  private final int chunkSize;
+  private final Map<Long, Map<Long, Long>> chunks = new HashMap<>();
+  private final Map<Long, Long> lastUses = new HashMap<>();
+  private final Set<Long> dirty = new HashSet<>();
+
+  /**
+   * Constructs a new EventIndex whose chunks are saved to the given directory.
+   *
+   * @param directory the directory the chunks are saved to
+   * @param chunkSize the number of consecutive sequence numbers in each chunk
+   */
+  public EventIndex(File directory, int chunkSize) {
+    this.directory = directory;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Returns the file a chunk is saved to.
+   *
+   * @param chunk the number of the chunk
+   * @return the file of the chunk
+   */
+  private File getChunkFile(long chunk) {
+    return new File(directory, chunk + ".bin");
+  }
+
+  /**
+   * Reads a chunk from disk.
+   *
+   * @param chunk the number of the chunk
+   * @return the offsets of the events in the chunk, keyed by sequence number, empty if the chunk was never saved
+   * @throws IOException if the chunk cannot be read
+   */
+  private Map<Long, Long> readChunk(long chunk) throws IOException {
+    Map<Long, Long> offsets = new HashMap<>();
+    File file = getChunkFile(chunk);
+    if (!file.exists()) {
+      return offsets;
+    }
+    Object saved;
+    try {
+      saved = BinaryCodec.readFile(file, username -> null);
+    } catch (ClassNotFoundException e) {
+      throw new IOException(e);
+    }
+    for (Map.Entry<?, ?> entry : ((Map<?, ?>) saved).entrySet()) {
+      offsets.put((Long) entry.getKey(), (Long) entry.getValue());
+    }
+    return offsets;
+  }
+
+  /**
+   * Runs an action on the chunk holding a sequence number while holding the lock of the index.
+   * A chunk not in memory is read without holding the lock, so lookups in other chunks are not held up by the disk,
+   * and is only added if no other thread added it meanwhile.
+   *
+   * @param sequence the sequence number
+   * @param action   the action to be run on the offsets of the events in the chunk
+   * @return the result of the action
+   * @throws IOException if the chunk cannot be read
+   */
+  private <T> T withChunk(long sequence, Function<Map<Long, Long>, T> action) throws IOException {
+    long chunk = sequence / chunkSize;
+    while (true) {
+      synchronized (this) {
+        Map<Long, Long> offsets = chunks.get(chunk);
+        if (offsets != null) {
+          lastUses.put(chunk, System.currentTimeMillis());
+          return action.apply(offsets);
+        }
+      }
+      Map<Long, Long> saved = readChunk(chunk);
+      synchronized (this) {
+        chunks.putIfAbsent(chunk, saved);
+        lastUses.put(chunk, System.currentTimeMillis());
+      }
+    }
+  }
+
+  /**
+   * Returns the offset of an event.
+   *
+   * @param sequence the sequence number of the event
+   * @return the offset of the event, or null if it is not stored
+   * @throws IOException if the chunk of the event cannot be read
+   */
+  public Long get(long sequence) throws IOException {
+    return withChunk(sequence, offsets -> offsets.get(sequence));
+  }
+
+  /**
+   * Sets the offset of an event.
+   *
+   * @param sequence the sequence number of the event
+   * @param offset   the offset of the event
+   * @throws IOException if the chunk of the event cannot be read
+   */
+  public void put(long sequence, long offset) throws IOException {
+    withChunk(sequence, offsets -> {
+      offsets.put(sequence, offset);
+      return dirty.add(sequence / chunkSize);
+    });
+  }
+
+  /**
+   * Sets the offset of an event, unless it already has one.
+   *
+   * @param sequence the sequence number of the event
+   * @param offset   the offset of the event
+   * @return the offset the event already had, or null if it had none
+   * @throws IOException if the chunk of the event cannot be read
+   */
+  public Long putIfAbsent(long sequence, long offset) throws IOException {
+    return withChunk(sequence, offsets -> {
+      Long previous = offsets.putIfAbsent(sequence, offset);
+      if (previous == null) {
+        dirty.add(sequence / chunkSize);
+      }
+      return previous;
+    });
+  }
+
+  /**
+   * Returns the highest sequence number in the index, reading only the last chunk saved.
+   *
+   * @return the highest sequence number, or 0 if the index is empty
+   * @throws IOException if the last chunk cannot be read
+   */
+  public long getLastSequence() throws IOException {
+    long lastChunk = -1;
+    File[] files = directory.listFiles((dir, name) -> name.endsWith(".bin"));
+    if (files != null) {
+      for (File file : files) {
+        try {
+          lastChunk = Math.max(lastChunk, Long.parseLong(file.getName().substring(0, file.getName().length() - ".bin".length())));
+        } catch (NumberFormatException ignored) {}
+      }
+    }
+    synchronized (this) {
+      for (long chunk : chunks.keySet()) {
+        lastChunk = Math.max(lastChunk, chunk);
+      }
+    }
+    if (lastChunk < 0) {
+      return 0;
+    }
+    return withChunk(lastChunk * chunkSize, offsets -> {
+      long last = 0;
+      for (long sequence : offsets.keySet()) {
+        last = Math.max(last, sequence);
+      }
+      return last;
+    });
+  }
+
+  /**
+   * Tells whether any chunk changed since it was last saved.
+   *
+   * @return true if there are changes to be saved, false otherwise
+   */
+  public synchronized boolean isDirty() {
+    return !dirty.isEmpty();
+  }
+
+  /**
+   * Saves the chunks changed since they were last saved.
+   * The chunks are copied while holding the lock and written after it is released.
+   * A chunk that could not be written is saved again next time.
+   *
+   * @throws IOException if a chunk cannot be written
+   */
+  public void save() throws IOException {
+    Map<Long, Map<Long, Long>> copies = new HashMap<>();
+    synchronized (this) {
+      for (long chunk : dirty) {
+        copies.put(chunk, new HashMap<>(chunks.get(chunk)));
+      }
+      dirty.clear();
+    }
+    directory.mkdirs();
+    try {
+      for (Iterator<Map.Entry<Long, Map<Long, Long>>> iterator = copies.entrySet().iterator(); iterator.hasNext();) {
+        Map.Entry<Long, Map<Long, Long>> copy = iterator.next();
+        BinaryCodec.writeFile(getChunkFile(copy.getKey()), copy.getValue(), false);
+        iterator.remove();
+      }
+    } finally {
+      synchronized (this) {
+        dirty.addAll(copies.keySet());
+      }
+    }
+  }
+
+  /**
+   * Evicts the chunks that are saved and were not used for a while.
+   * Must not run while the index is being saved.
+   *
+   * @param idle the time a chunk must have gone unused to be evicted, in milliseconds
+   */
+  public synchronized void evict(long idle) {
+    long now = System.currentTimeMillis();
+    for (Iterator<Map.Entry<Long, Long>> uses = lastUses.entrySet().iterator(); uses.hasNext();) {
+      Map.Entry<Long, Long> use = uses.next();
+      if (now - use.getValue() >= idle && !dirty.contains(use.getKey())) {
+        chunks.remove(use.getKey());
+        uses.remove();
+      }
+    }
+  }
+}
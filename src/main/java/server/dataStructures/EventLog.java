@@ -0,0 +1,132 @@
+package server.dataStructures;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The EventLog class is an append-only log of the events sent to many users at once,
+ * either every user (broadcast) or the members of a group.
+ * Each event is recorded once, by its sequence number, and every subscriber reads it through a cursor holding
+ * the last sequence number of the log at the time it subscribed.
+ * The log is kept in sequence order, so the events newer than a sequence number are found by binary search.
+ * A late event is inserted before newer ones, so cursors are sequence numbers rather than positions,
+ * which such an insert would shift.
+ */
+public class EventLog implements Serializable {
+  private static final long serialVersionUID = 7051948170206739835L;
+  private long[] sequences = new long[16];
+  private int size;
+
+  /**
+   * Appends an event to the log, in sequence order.
+   * Events are appended nearly in sequence order, so one appended late only moves past a few others.
+   *
+   * @param sequence the sequence number of the event to be appended
+   */
+  public synchronized void append(long sequence) {
+    if (size == sequences.length) {
+      sequences = Arrays.copyOf(sequences, size * 2);
+    }
+    int position = size;
+    while (position > 0 && sequences[position - 1] > sequence) {
+      sequences[position] = sequences[position - 1];
+      position--;
+    }
+    sequences[position] = sequence;
+    size++;
+  }
+
+  /**
+   * Returns the sequence number of the newest event of the log, which a new subscriber starts reading after.
+   *
+   * @return the last sequence number of the log, or 0 if it is empty
+   */
+  public synchronized long getLastSequence() {
+    return size == 0 ? 0 : sequences[size - 1];
+  }
+
+  /**
+   * Returns the events of the log that are newer than a sequence number.
+   *
+   * @param since the sequence number of the last event already seen, 0 for every event
+   * @return the sequence numbers of the events, in sequence order
+   */
+  public long[] getSequences(long since) {
+    return getSequences(since, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns at most a given number of the events of the log that are newer than a sequence number.
+   *
+   * @param since the sequence number of the last event already seen, 0 for every event
+   * @param limit the maximum number of events to be returned
+   * @return the sequence numbers of the oldest of those events, in sequence order
+   */
+  public synchronized long[] getSequences(long since, int limit) {
+    int first = search(since);
+    if (first < 0) {
+      first = -first - 1;
+    } else {
+      first++;
+    }
+    return Arrays.copyOfRange(sequences, first, (int) Math.min(size, (long) first + limit));
+  }
+
+  /**
+   * Tells whether an event was appended to the log.
+   *
+   * @param sequence the sequence number of the event
+   * @return true if the event is in the log, false otherwise
+   */
+  public synchronized boolean contains(long sequence) {
+    return search(sequence) >= 0;
+  }
+
+  /**
+   * Searches the log for a sequence number.
+   * Must be called while holding the lock of the log.
+   *
+   * @param sequence the sequence number to be searched for
+   * @return the position of the sequence number, or (-(insertion point) - 1) if it is not in the log
+   */
+  private int search(long sequence) {
+    return Arrays.binarySearch(sequences, 0, size, sequence);
+  }
+
+  /**
+   * Returns a copy of the log as it is now, which further appends do not change.
+   *
+   * @return the copy of the log
+   */
+  public synchronized EventLog copy() {
+    EventLog copy = new EventLog();
+    copy.sequences = Arrays.copyOf(sequences, Math.max(size, 16));
+    copy.size = size;
+    return copy;
+  }
+
+  /**
+   * Serializes the log while holding its lock, so no event is appended halfway through.
+   *
+   * @param out the stream to write the log to
+   * @throws IOException if an I/O error occurs while writing
+   */
+  private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+  }
+
+  /**
+   * Restores a serialized log, sorting the logs saved before they were kept in sequence order.
+   *
+   * @param in the stream to read the log from
+   * @throws IOException            if an I/O error occurs while reading
+   * @throws ClassNotFoundException if the class of a serialized object cannot be found
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    Arrays.sort(sequences, 0, size);
+  }
+}
@@ -0,0 +1,168 @@
+package server.dataStructures;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import server.dataStructures.interfaces.Event;
+import server.dataStructures.interfaces.User;
+
+/**
+ * The EventStore class keeps events in append-only segment files mapped into memory.
+ * Each event is written once as a length-prefixed record, encoded by the BinaryCodec, and is identified by its offset,
+ * which holds the number of its segment in the high 32 bits and its position in the low 32 bits.
+ * The heap only holds offsets; reading an event decodes it from the mapped segment,
+ * which the operating system serves from its page cache.
+ * A zero length marks the end of the records written to a segment.
+ * Records written with default Java serialization, before the codec existed, are still read.
+ */
+public class EventStore {
+  private final String prefix;
+  private final int segmentSize;
+  private final Function<String, User> users;
+  private final List<MappedByteBuffer> segments = new ArrayList<>();
+  private int position;
+  private int unforced;
+
+  /**
+   * Constructs a new EventStore whose segments are named after the given prefix.
+   *
+   * @param prefix      the prefix of the segment file names
+   * @param segmentSize the size of each segment, in bytes
+   * @param users       resolves the usernames events refer to, as they are read, to the loaded users
+   */
+  public EventStore(String prefix, int segmentSize, Function<String, User> users) {
+    this.prefix = prefix;
+    this.segmentSize = segmentSize;
+    this.users = users;
+  }
+
+  /**
+   * Maps the segments found on disk and finds the end of the records written to the last one.
+   *
+   * @throws IOException if a segment cannot be mapped
+   */
+  public synchronized void open() throws IOException {
+    for (int segment = 0; new File(getSegmentFile(segment)).exists(); segment++) {
+      segments.add(map(segment));
+    }
+    if (segments.isEmpty()) {
+      segments.add(map(0));
+    }
+    MappedByteBuffer last = segments.get(segments.size() - 1);
+    position = 0;
+    while (position + Integer.BYTES <= segmentSize) {
+      int length = last.getInt(position);
+      if (length <= 0 || position + Integer.BYTES + length > segmentSize) {
+        break;
+      }
+      position += Integer.BYTES + length;
+    }
+  }
+
+  /**
+   * Returns the file name of a segment.
+   *
+   * @param segment the number of the segment
+   * @return the file name of the segment
+   */
+  private String getSegmentFile(int segment) {
+    return prefix + "-" + segment + ".seg";
+  }
+
+  /**
+   * Maps a segment file into memory, creating it if needed.
+   *
+   * @param segment the number of the segment
+   * @return the mapped segment
+   * @throws IOException if the segment cannot be mapped
+   */
+  private MappedByteBuffer map(int segment) throws IOException {
+    try (FileChannel channel = FileChannel.open(new File(getSegmentFile(segment)).toPath(),
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+  }
+
+  /**
+   * Appends an event to the store.
+   *
+   * @param event the event to be stored
+   * @return the offset of the event
+   * @throws IOException if the event cannot be encoded, does not fit in a segment or a new segment cannot be mapped
+   */
+  public long append(Event event) throws IOException {
+    ByteArrayOutputStream record = new ByteArrayOutputStream();
+    BinaryCodec.write(record, event, false);
+    // Leave room for the length that marks the end of the records
+    if (Integer.BYTES * 2 + record.size() > segmentSize) {
+      throw new IOException("Event of " + record.size() + " bytes does not fit in a segment!");
+    }
+    synchronized (this) {
+      if (segments.isEmpty()) {
+        throw new IOException("Event store is not open!");
+      }
+      if (position + Integer.BYTES * 2 + record.size() > segmentSize) {
+        segments.add(map(segments.size()));
+        position = 0;
+      }
+      int segment = segments.size() - 1;
+      ByteBuffer buffer = segments.get(segment).duplicate();
+      buffer.position(position + Integer.BYTES);
+      buffer.put(record.toByteArray());
+      // Write the length last, so a record is only found once it is complete
+      buffer.putInt(position, record.size());
+      long offset = ((long) segment << 32) | position;
+      position += Integer.BYTES + record.size();
+      return offset;
+    }
+  }
+
+  /**
+   * Reads an event from the store.
+   *
+   * @param offset the offset of the event, as returned when it was appended
+   * @return the event
+   * @throws IOException            if the record cannot be read
+   * @throws ClassNotFoundException if the class of the event cannot be found
+   */
+  public Event read(long offset) throws IOException, ClassNotFoundException {
+    MappedByteBuffer segment;
+    synchronized (this) {
+      segment = segments.get((int) (offset >>> 32));
+    }
+    int position = (int) offset;
+    byte[] record = new byte[segment.getInt(position)];
+    segment.get(position + Integer.BYTES, record);
+    if (record.length > 0 && BinaryCodec.isEncoded(record[0])) {
+      return (Event) BinaryCodec.read(new ByteArrayInputStream(record), users);
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(record))) {
+      return (Event) in.readObject();
+    }
+  }
+
+  /**
+   * Forces the records written so far to disk.
+   * Segments already full when they were last forced are skipped.
+   */
+  public void force() {
+    List<MappedByteBuffer> mapped;
+    synchronized (this) {
+      mapped = new ArrayList<>(segments.subList(unforced, segments.size()));
+      unforced = segments.size() - 1;
+    }
+    for (MappedByteBuffer segment : mapped) {
+      segment.force();
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package server.dataStructures;
+
+import java.io.Serializable;
+
+import server.dataStructures.interfaces.Event;
+import server.dataStructures.interfaces.User;
+
+/**
+ * The Mutation class represents a change made to the shared object, as recorded in the write-ahead log.
+ * Only the fields relevant to its type are set.
+ */
+public class Mutation implements Serializable {
+  private static final long serialVersionUID = -6323196173170504158L;
+
+  /**
+   * The kinds of change recorded in the write-ahead log.
+   */
+  public enum Type {
+    ADD_USER, ADD_USER_EVENT, ADD_SHARED_EVENT, ADD_EVENT_TO_DELIVER, ADD_USER_TO_GROUP, SET_ACCEPTER, ACKNOWLEDGE
+  }
+
+  private final Type type;
+  private final User user;
+  private final Event event;
+  private final String name;
+  private final long sequence;
+
+  private Mutation(Type type, User user, Event event, String name, long sequence) {
+    this.type = type;
+    this.user = user;
+    this.event = event;
+    this.name = name;
+    this.sequence = sequence;
+  }
+
+  public static Mutation addUser(User user) {
+    return new Mutation(Type.ADD_USER, user, null, null, 0);
+  }
+
+  public static Mutation addUserEvent(User user, Event event) {
+    return new Mutation(Type.ADD_USER_EVENT, user, event, null, 0);
+  }
+
+  public static Mutation addSharedEvent(String log, Event event) {
+    return new Mutation(Type.ADD_SHARED_EVENT, null, event, log, 0);
+  }
+
+  public static Mutation addEventToDeliver(Event event) {
+    return new Mutation(Type.ADD_EVENT_TO_DELIVER, null, event, null, 0);
+  }
+
+  public static Mutation addUserToGroup(String group, User user) {
+    return new Mutation(Type.ADD_USER_TO_GROUP, user, null, group, 0);
+  }
+
+  public static Mutation setAccepter(Event request, User accepter) {
+    return new Mutation(Type.SET_ACCEPTER, accepter, request, null, 0);
+  }
+
+  public static Mutation acknowledge(User user, long sequence) {
+    return new Mutation(Type.ACKNOWLEDGE, user, null, null, sequence);
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public User getUser() {
+    return user;
+  }
+
+  public Event getEvent() {
+    return event;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getSequence() {
+    return sequence;
+  }
+}
@@ -0,0 +1,168 @@
+package server.dataStructures;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+import server.dataStructures.interfaces.Event;
+
+/**
+ * The Outbox class holds the events waiting to be delivered to a single user, in a high and a low priority queue.
+ * Batches take high priority events first, and one waiting low priority event after every burst of high ones,
+ * so a backlog of chat messages does not hold up requests; events keep their order within a queue.
+ * At most one worker drains an outbox at a time: adding an event tells the caller
+ * whether a worker has to be started, and a worker that runs out of events tells itself
+ * whether it has to keep going because events arrived meanwhile.
+ * Deliveries are taken in batches so they can be sent together,
+ * and a batch put back for a later retry stays at the head of the outbox and keeps it marked as draining,
+ * so the events behind it wait for it instead of overtaking it.
+ * An outbox whose user is offline is parked the same way, with no worker, until the user logs in again.
+ */
+public class Outbox {
+  private final Queue<Delivery> high = new ConcurrentLinkedQueue<>();
+  private final Queue<Delivery> low = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean draining = new AtomicBoolean();
+  private final AtomicBoolean parked = new AtomicBoolean();
+  private final int highBurst;
+  private volatile List<Delivery> retrying;
+  private int highStreak;
+
+  /**
+   * Constructs a new, empty Outbox.
+   *
+   * @param highBurst the number of high priority events taken in a row before a waiting low priority event is taken
+   */
+  public Outbox(int highBurst) {
+    this.highBurst = highBurst;
+  }
+
+  /**
+   * Adds an event to the outbox.
+   *
+   * @param event        the event to be delivered
+   * @param highPriority whether the event goes to the high priority queue
+   * @return true if no worker is draining the outbox and the caller must start one, false otherwise
+   */
+  public boolean add(Event event, boolean highPriority) {
+    (highPriority ? high : low).add(new Delivery(event));
+    return draining.compareAndSet(false, true);
+  }
+
+  /**
+   * Tells whether high priority events are waiting in the outbox.
+   *
+   * @return true if the high priority queue is not empty, false otherwise
+   */
+  public boolean hasHighPriority() {
+    return !high.isEmpty();
+  }
+
+  /**
+   * Removes the next batch of deliveries.
+   * A batch put back for a retry is returned as it was, otherwise up to the given number of deliveries are taken,
+   * high priority ones first.
+   *
+   * @param max the maximum number of deliveries to take
+   * @return the next deliveries, empty if the outbox is empty
+   */
+  public List<Delivery> poll(int max) {
+    List<Delivery> batch = retrying;
+    if (batch != null) {
+      retrying = null;
+      return batch;
+    }
+    batch = new ArrayList<>();
+    Delivery delivery;
+    while (batch.size() < max) {
+      if (highStreak >= highBurst && (delivery = low.poll()) != null) {
+        highStreak = 0;
+      } else if ((delivery = high.poll()) != null) {
+        highStreak++;
+      } else if ((delivery = low.poll()) != null) {
+        highStreak = 0;
+      } else {
+        break;
+      }
+      batch.add(delivery);
+    }
+    return batch;
+  }
+
+  /**
+   * Puts a failed batch of deliveries back at the head of the outbox.
+   * The outbox stays marked as draining until a worker resumes it.
+   *
+   * @param batch the deliveries to be retried
+   */
+  public void retryLater(List<Delivery> batch) {
+    retrying = batch;
+  }
+
+  /**
+   * Puts a batch of deliveries back at the head of the outbox and parks it until its user logs in again.
+   * The outbox stays marked as draining, so adding events does not start a worker meanwhile.
+   *
+   * @param batch the deliveries that could not be attempted
+   */
+  public void park(List<Delivery> batch) {
+    retrying = batch;
+    parked.set(true);
+  }
+
+  /**
+   * Resumes a parked outbox, first dropping the events that are delivered some other way.
+   *
+   * @param delivered tells whether an event is delivered some other way, such as by the login history
+   * @return true if the outbox was parked and the caller must start a worker, false otherwise
+   */
+  public boolean unpark(Predicate<Event> delivered) {
+    if (!parked.compareAndSet(true, false)) {
+      return false;
+    }
+    List<Delivery> batch = retrying;
+    if (batch != null) {
+      batch.removeIf(delivery -> delivered.test(delivery.getEvent()));
+      if (batch.isEmpty()) {
+        retrying = null;
+      }
+    }
+    high.removeIf(delivery -> delivered.test(delivery.getEvent()));
+    low.removeIf(delivery -> delivered.test(delivery.getEvent()));
+    return true;
+  }
+
+  /**
+   * Marks the end of a drain, once poll returned an empty batch.
+   *
+   * @return true if events were added meanwhile and the worker must keep draining, false otherwise
+   */
+  public boolean finishDraining() {
+    draining.set(false);
+    return !(high.isEmpty() && low.isEmpty()) && draining.compareAndSet(false, true);
+  }
+
+  /**
+   * Returns the events waiting in the outbox.
+   *
+   * @return a copy of the events, high priority queue first
+   */
+  public List<Event> getEvents() {
+    List<Event> events = new ArrayList<>();
+    List<Delivery> batch = retrying;
+    if (batch != null) {
+      for (Delivery delivery : batch) {
+        events.add(delivery.getEvent());
+      }
+    }
+    for (Delivery queued : high) {
+      events.add(queued.getEvent());
+    }
+    for (Delivery queued : low) {
+      events.add(queued.getEvent());
+    }
+    return events;
+  }
+}
@@ -1,20 +1,37 @@
 package server.dataStructures;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
 import java.net.DatagramSocket;
-import java.net.MulticastSocket;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
 import java.net.Socket;
+import java.net.SocketException;
+import java.net.URLEncoder;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
 
+import server.Server;
+import server.dataStructures.classes.EventImpl;
 import server.dataStructures.interfaces.Event;
 import server.dataStructures.interfaces.Request;
 import server.dataStructures.interfaces.User;
@@ -24,14 +41,46 @@ import shared.enumerations.Role;
  * The SharedObject class represents a shared object that stores data and provides methods for managing users, sockets, events, groups, and data persistence.
  */
 public class SharedObject {
+  private static final Logger logger = Logger.getLogger(SharedObject.class.getName());
+  public static final String BROADCAST_LOG = "broadcast";
+
   private static Map<String, User> users = new HashMap<>();
   private static Map<User, Socket> userSockets = new HashMap<>();
-  private static Map<User, TreeSet<Event>> userEvents = new HashMap<>();
-  private static List<Event> eventsToDeliver = new ArrayList<>();
+  private static Map<User, TreeSet<Long>> userEvents = new HashMap<>();
+  private static Map<User, Long> partitionUses = new HashMap<>();
+  private static EventStore eventStore = new EventStore("events", Server.EVENT_SEGMENT_SIZE, SharedObject::getUser);
+  private static Set<Long> requestSequences = ConcurrentHashMap.newKeySet();
+  private static boolean requestSequencesLoaded;
+  private static Set<Long> acceptedRequestSequences = ConcurrentHashMap.newKeySet();
+  private static boolean acceptedRequestSequencesLoaded;
+  private static Map<String, EventLog> eventLogs = new ConcurrentHashMap<>();
+  private static boolean eventLogsLoaded;
+  private static Map<User, Map<String, Long>> logCursors = new HashMap<>();
+  private static Map<User, Long> ackedSequences = new ConcurrentHashMap<>();
+  private static Map<User, TreeSet<Long>> ackedAhead = new ConcurrentHashMap<>();
+  private static DeliveryLanes eventsToDeliver = new DeliveryLanes(Server.DELIVERY_HIGH_PRIORITY_ROLE, Server.DELIVERY_HIGH_BURST);
+  private static Map<User, Outbox> outboxes = new ConcurrentHashMap<>();
+  private static Map<User, List<Event>> deadLetters = new HashMap<>();
   private static Map<String, List<User>> groups = new HashMap<>();
+  private static WriteAheadLog writeAheadLog = new WriteAheadLog("sharedObject");
+  private static final String SNAPSHOT_PREFIX = "sharedObject-";
+  private static final String SNAPSHOT_SUFFIX = ".snapshot";
+  private static final File SNAPSHOT_DIRECTORY = new File("snapshot");
+  private static final File PARTITIONS_DIRECTORY = new File(SNAPSHOT_DIRECTORY, "userEvents");
+  private static EventIndex eventIndex = new EventIndex(new File(SNAPSHOT_DIRECTORY, "eventOffsets"), Server.EVENT_INDEX_CHUNK_SIZE);
+  private static final List<String> STRUCTURES = List.of("users.bin", "requestSequences.bin",
+      "acceptedRequestSequences.bin", "eventsToDeliver.bin", "groups.bin", "deadLetters.bin", "eventLogs.bin", "logCursors.bin", "ackedSequences.bin");
+  private static final List<String> LEGACY_STRUCTURES = List.of("users.bin", "userEvents.bin", "eventOffsets.bin",
+      "requestSequences.bin", "eventsToDeliver.bin", "groups.bin", "deadLetters.bin", "eventLogs.bin", "logCursors.bin",
+      "ackedSequences.bin");
+  private static final Set<String> dirtyStructures = ConcurrentHashMap.newKeySet();
+  private static final Set<String> dirtyUserEvents = ConcurrentHashMap.newKeySet();
+  private static List<Long> savedPendingSequences = new ArrayList<>();
+  private static boolean loaded;
+  private static boolean migrating;
 
-  private static MulticastSocket multicastSocket;
-  private static DatagramSocket broadcastSocket;
+  private static DatagramChannel multicastChannel;
+  private static DatagramChannel broadcastChannel;
 
   //#region Entities Management
   /**
@@ -50,6 +99,8 @@ public class SharedObject {
       }
       users.put(user.getUsername(), user);
     }
+    subscribe(user, BROADCAST_LOG);
+    log(Mutation.addUser(user));
   }
 
   /**
@@ -162,6 +213,100 @@ public class SharedObject {
   //#endregion
 
   //#region Entities Events Management
+  /**
+   * Writes an event to the event store, unless it is already there.
+   *
+   * @param event the event to be stored
+   * @return true if the event is in the store, false if it could not be written
+   */
+  private static boolean storeEvent(Event event) {
+    try {
+      if (eventIndex.get(event.getSequence()) == null) {
+        eventIndex.putIfAbsent(event.getSequence(), eventStore.append(event));
+      }
+    } catch (IOException io) {
+      logger.severe("Error Storing Event! " + io.getMessage());
+      return false;
+    }
+    if (event instanceof Request) {
+      requestSequences.add(event.getSequence());
+    }
+    return true;
+  }
+
+  /**
+   * Reads events from the event store.
+   *
+   * @param sequences the sequence numbers of the events to be read
+   * @return a list of the events found, in the order of the sequence numbers
+   */
+  private static List<Event> readEvents(Collection<Long> sequences) {
+    List<Event> events = new ArrayList<>();
+    for (long sequence : sequences) {
+      try {
+        Long offset = eventIndex.get(sequence);
+        if (offset != null) {
+          events.add(eventStore.read(offset));
+        }
+      } catch (IOException | ClassNotFoundException error) {
+        logger.severe("Error Reading Event " + sequence + "! " + error.getMessage());
+      }
+    }
+    return events;
+  }
+
+  /**
+   * Reads the events of a user from the partition they are saved to, the first time they are needed.
+   * The partition is read without holding the lock of the user events, so other users are not held up by the disk,
+   * and the events read are merged under the lock with the ones added meanwhile.
+   * A partition that cannot be read is read again the next time it is needed.
+   *
+   * @param user the user whose events are to be read
+   */
+  private static void loadPartition(User user) {
+    synchronized (userEvents) {
+      if (partitionUses.containsKey(user)) {
+        partitionUses.put(user, System.currentTimeMillis());
+        return;
+      }
+    }
+    TreeSet<Long> saved = null;
+    File partition = getPartitionFile(user.getUsername());
+    try {
+      if (partition.exists()) {
+        saved = new TreeSet<>();
+        for (Object sequence : (Collection<?>) BinaryCodec.readFile(partition, SharedObject::getUser)) {
+          saved.add((Long) sequence);
+        }
+      }
+    } catch (IOException | ClassNotFoundException error) {
+      logger.severe("Error Loading Events of " + user.getUsername() + "! " + error.getMessage());
+      return;
+    }
+    synchronized (userEvents) {
+      // Another thread may have read the partition meanwhile, and its events are already merged
+      if (!partitionUses.containsKey(user)) {
+        TreeSet<Long> sequences = userEvents.computeIfAbsent(user, key -> new TreeSet<>());
+        if (saved != null) {
+          sequences.addAll(saved);
+        }
+      }
+      partitionUses.put(user, System.currentTimeMillis());
+    }
+  }
+
+  /**
+   * Returns the events of a user held in memory.
+   * Must be called while holding the lock of the user events, after loadPartition read the user's partition;
+   * having just been used, the partition is not evicted before the lock is taken.
+   *
+   * @param user the user whose events are to be returned
+   * @return the sequence numbers of the user's events
+   */
+  private static TreeSet<Long> getPartition(User user) {
+    return userEvents.computeIfAbsent(user, key -> new TreeSet<>());
+  }
+
   /**
    * Adds an event to the user's event list.
    * 
@@ -176,31 +321,399 @@ public class SharedObject {
     if (user == null) {
       throw new IllegalArgumentException("User cannot be null!");
     }
+    if (!storeEvent(event)) {
+      return;
+    }
+    loadPartition(user);
     synchronized (userEvents) {
-      if (!userEvents.containsKey(user)) {
-        userEvents.put(user, new TreeSet<>());
+      getPartition(user).add(event.getSequence());
+      // Marked before the lock is released, so the partition cannot be evicted before it is saved
+      dirtyUserEvents.add(user.getUsername());
+    }
+    log(Mutation.addUserEvent(user, event));
+  }
+
+  /**
+   * Returns the shared logs, reading the saved ones the first time they are needed,
+   * so a long broadcast history is not read while the server starts.
+   *
+   * @return the shared logs, keyed by name
+   * @throws IOException if the saved logs cannot be read
+   */
+  private static Map<String, EventLog> getEventLogs() throws IOException {
+    synchronized (eventLogs) {
+      if (!eventLogsLoaded) {
+        File file = new File(SNAPSHOT_DIRECTORY, "eventLogs.bin");
+        try {
+          if (file.exists()) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) BinaryCodec.readFile(file, SharedObject::getUser)).entrySet()) {
+              eventLogs.put((String) entry.getKey(), (EventLog) entry.getValue());
+            }
+          }
+        } catch (ClassNotFoundException e) {
+          throw new IOException(e);
+        }
+        eventLogsLoaded = true;
+      }
+    }
+    return eventLogs;
+  }
+
+  /**
+   * Appends an event sent to many users at once to the shared log of its receivers,
+   * instead of adding it to the event list of each one of them.
+   *
+   * @param log the name of the log, either BROADCAST_LOG or the address of a group
+   * @param event the event to be appended
+   * @throws IllegalArgumentException if the log is null or empty, or if the event is null
+   */
+  public static <E extends Event> void addSharedEvent(String log, E event) {
+    if (log == null || log.isEmpty()) {
+      throw new IllegalArgumentException("Log cannot be null or empty!");
+    }
+    if (event == null) {
+      throw new IllegalArgumentException("Event cannot be null!");
+    }
+    if (!storeEvent(event)) {
+      return;
+    }
+    try {
+      getEventLogs().computeIfAbsent(log, key -> new EventLog()).append(event.getSequence());
+    } catch (IOException io) {
+      logger.severe("Error Loading Event Logs! " + io.getMessage());
+      return;
+    }
+    log(Mutation.addSharedEvent(log, event));
+  }
+
+  /**
+   * Subscribes a user to a shared log, reading the events newer than the ones the log holds now.
+   * A user already subscribed keeps its cursor.
+   *
+   * @param user the user to be subscribed
+   * @param log the name of the log, either BROADCAST_LOG or the address of a group
+   */
+  private static void subscribe(User user, String log) {
+    long cursor;
+    try {
+      cursor = getEventLogs().computeIfAbsent(log, key -> new EventLog()).getLastSequence();
+    } catch (IOException io) {
+      logger.severe("Error Loading Event Logs! " + io.getMessage());
+      return;
+    }
+    synchronized (logCursors) {
+      if (!logCursors.containsKey(user)) {
+        logCursors.put(user, new HashMap<>());
       }
-      userEvents.get(user).add(event);
+      logCursors.get(user).putIfAbsent(log, cursor);
     }
   }
 
   /**
-   * Retrieves the list of events associated with a given user.
+   * Retrieves the list of events associated with a given user,
+   * merging the user's own events with the shared logs it is subscribed to.
    * 
    * @param user the user for which to retrieve the events
    * @return a list of events associated with the user, or an empty list if the user has no events
    * @throws IllegalArgumentException if the user is null
    */
   public static List<? extends Event> getUserEvents(User user) {
+    return getUserEvents(user, 0);
+  }
+
+  /**
+   * Retrieves the list of events associated with a given user that are newer than a sequence number,
+   * so a client only downloads what it has not seen yet.
+   * Only the newer events are read from the event store.
+   *
+   * @param user the user for which to retrieve the events
+   * @param since the sequence number of the last event already seen, 0 for every event
+   * @return a list of the newer events associated with the user, in sequence order
+   * @throws IllegalArgumentException if the user is null
+   */
+  public static List<? extends Event> getUserEvents(User user, long since) {
+    return readEvents(getUserSequences(user, since, Integer.MAX_VALUE));
+  }
+
+  /**
+   * Retrieves the sequence numbers of at most a given number of the events associated with a user
+   * that are newer than a sequence number, merging the user's own events with the shared logs it is subscribed to.
+   * Only the oldest of those events are returned, so a long history is walked a page at a time
+   * by passing the last sequence number of a page as the start of the next one.
+   *
+   * @param user  the user for which to retrieve the events
+   * @param since the sequence number of the last event already seen, 0 for every event
+   * @param limit the maximum number of sequence numbers to be returned
+   * @return the sequence numbers of the oldest newer events associated with the user, in sequence order
+   * @throws IllegalArgumentException if the user is null
+   */
+  public static List<Long> getUserSequences(User user, long since, int limit) {
     if (user == null) {
       throw new IllegalArgumentException("User cannot be null!");
     }
+    TreeSet<Long> sequences = new TreeSet<>();
+    loadPartition(user);
     synchronized (userEvents) {
-      if (!userEvents.containsKey(user)) {
-        return new ArrayList<>();
+      for (long sequence : getPartition(user).tailSet(since, false)) {
+        if (sequences.size() == limit) {
+          break;
+        }
+        sequences.add(sequence);
+      }
+    }
+    Map<String, EventLog> logs;
+    try {
+      logs = getEventLogs();
+    } catch (IOException io) {
+      logger.severe("Error Loading Event Logs! " + io.getMessage());
+      logs = new HashMap<>();
+    }
+    for (Map.Entry<String, Long> cursor : getCursors(user).entrySet()) {
+      EventLog log = logs.get(cursor.getKey());
+      if (log != null) {
+        for (long sequence : log.getSequences(Math.max(cursor.getValue(), since), limit)) {
+          sequences.add(sequence);
+        }
+      }
+    }
+    List<Long> page = new ArrayList<>(Math.min(sequences.size(), limit));
+    for (long sequence : sequences) {
+      if (page.size() == limit) {
+        break;
+      }
+      page.add(sequence);
+    }
+    return page;
+  }
+
+  /**
+   * Returns the sequence numbers after which a user reads the shared logs it is subscribed to.
+   *
+   * @param user the user whose cursors are to be returned
+   * @return a copy of the user's cursors, keyed by the name of the log
+   */
+  private static Map<String, Long> getCursors(User user) {
+    Map<String, Long> cursors;
+    synchronized (logCursors) {
+      cursors = new HashMap<>(logCursors.getOrDefault(user, new HashMap<>()));
+    }
+    // Users loaded from before the shared logs existed read the broadcast log from its start
+    if (!cursors.containsKey(BROADCAST_LOG)) {
+      cursors.put(BROADCAST_LOG, 0L);
+    }
+    return cursors;
+  }
+
+  /**
+   * Reads events from the event store, such as a page of the events of a user.
+   *
+   * @param sequences the sequence numbers of the events to be read
+   * @return a list of the events found, in the order of the sequence numbers
+   */
+  public static List<Event> getEvents(Collection<Long> sequences) {
+    return readEvents(sequences);
+  }
+
+  /**
+   * Records the events a user's client processed.
+   * Only the events of the user's own partition are pushed to it with their sequence number, so only they hold the watermark:
+   * broadcast and group events reach clients as datagrams without one and are never acknowledged.
+   * Pushed events are not delivered in sequence order, so the acknowledged watermark only moves up to the first event of the partition
+   * that was neither acknowledged nor sent by the user itself, and so never delivered to it.
+   * Acknowledged events above the watermark are remembered until the gaps below them are filled.
+   *
+   * @param user the user that acknowledged the events
+   * @param sequences the sequence numbers of the events processed
+   * @throws IllegalArgumentException if the user or the sequence numbers are null
+   */
+  public static void acknowledge(User user, Collection<Long> sequences) {
+    if (user == null) {
+      throw new IllegalArgumentException("User cannot be null!");
+    }
+    if (sequences == null) {
+      throw new IllegalArgumentException("Sequences cannot be null!");
+    }
+    TreeSet<Long> ahead = ackedAhead.computeIfAbsent(user, key -> new TreeSet<>());
+    long acked;
+    long watermark;
+    synchronized (ahead) {
+      acked = getAckedSequence(user);
+      List<Long> pending = new ArrayList<>();
+      loadPartition(user);
+      synchronized (userEvents) {
+        TreeSet<Long> partition = getPartition(user);
+        for (long sequence : sequences) {
+          if (sequence > acked && partition.contains(sequence)) {
+            ahead.add(sequence);
+          }
+        }
+        watermark = partition.isEmpty() ? acked : Math.max(acked, partition.last());
+        for (long sequence : partition.tailSet(acked, false)) {
+          if (pending.size() == Server.HISTORY_CHUNK_SIZE) {
+            // The rest is walked by the next acknowledgement
+            watermark = sequence - 1;
+            break;
+          }
+          if (!ahead.contains(sequence)) {
+            pending.add(sequence);
+          }
+        }
+      }
+      // Events sent by the user are read from the store outside the lock of the user events
+      for (long sequence : pending) {
+        if (!isSentBy(user, sequence)) {
+          watermark = sequence - 1;
+          break;
+        }
+      }
+      ahead.headSet(watermark, true).clear();
+    }
+    if (watermark > acked) {
+      ackedSequences.merge(user, watermark, Math::max);
+      log(Mutation.acknowledge(user, watermark));
+    }
+  }
+
+  /**
+   * Tells whether an event was sent by a user.
+   *
+   * @param user the user
+   * @param sequence the sequence number of the event
+   * @return true if the event was sent by the user, false otherwise or if it cannot be read
+   */
+  private static boolean isSentBy(User user, long sequence) {
+    for (Event event : readEvents(List.of(sequence))) {
+      return event.getSender() != null && event.getSender().getUsername().equals(user.getUsername());
+    }
+    return false;
+  }
+
+  /**
+   * Retrieves the sequence number up to which a user's client acknowledged every event.
+   *
+   * @param user the user whose watermark is to be retrieved
+   * @return the acknowledged watermark, or 0 if the user never acknowledged an event
+   * @throws IllegalArgumentException if the user is null
+   */
+  public static long getAckedSequence(User user) {
+    if (user == null) {
+      throw new IllegalArgumentException("User cannot be null!");
+    }
+    return ackedSequences.getOrDefault(user, 0L);
+  }
+
+  /**
+   * Sets the user who accepted a request.
+   *
+   * @param request the accepted request
+   * @param accepter the user who accepted the request
+   * @throws IllegalArgumentException if the request or the accepter is null
+   */
+  public static void setRequestAccepter(Request request, User accepter) {
+    if (request == null) {
+      throw new IllegalArgumentException("Request cannot be null!");
+    }
+    if (accepter == null) {
+      throw new IllegalArgumentException("Accepter cannot be null!");
+    }
+    request.setAccepter(accepter);
+    // Stored events are immutable, so the accepted request is stored again in place of the old one
+    storeAcceptedRequest(request);
+    acceptedRequestSequences.add(request.getSequence());
+    log(Mutation.setAccepter(request, accepter));
+  }
+
+  /**
+   * Stores an accepted request in place of the stored one, if the request is stored.
+   *
+   * @param request the accepted request
+   */
+  private static void storeAcceptedRequest(Request request) {
+    try {
+      if (eventIndex.get(request.getSequence()) != null) {
+        eventIndex.put(request.getSequence(), eventStore.append(request));
+      }
+    } catch (IOException io) {
+      logger.severe("Error Storing Accepted Request! " + io.getMessage());
+    }
+  }
+
+  /**
+   * Returns the sequence numbers of the stored requests, reading the saved ones the first time they are needed.
+   * Requests stored before they are read are kept along with the ones read.
+   *
+   * @return the sequence numbers of the stored requests
+   * @throws IOException if the saved sequence numbers cannot be read
+   */
+  private static Set<Long> getRequestSequences() throws IOException {
+    synchronized (requestSequences) {
+      if (!requestSequencesLoaded) {
+        File file = new File(SNAPSHOT_DIRECTORY, "requestSequences.bin");
+        try {
+          if (file.exists()) {
+            for (Object sequence : (Collection<?>) BinaryCodec.readFile(file, SharedObject::getUser)) {
+              requestSequences.add((Long) sequence);
+            }
+          }
+        } catch (ClassNotFoundException e) {
+          throw new IOException(e);
+        }
+        requestSequencesLoaded = true;
+      }
+    }
+    return requestSequences;
+  }
+
+  /**
+   * Returns the sequence numbers of the accepted requests, reading the saved ones the first time they are needed.
+   * Data saved before they were kept is scanned once for the accepted requests, to be saved by the next save.
+   * Requests accepted before they are read are kept along with the ones read.
+   *
+   * @return the sequence numbers of the accepted requests
+   * @throws IOException if the saved sequence numbers cannot be read
+   */
+  private static Set<Long> getAcceptedRequestSequences() throws IOException {
+    synchronized (acceptedRequestSequences) {
+      if (!acceptedRequestSequencesLoaded) {
+        File file = new File(SNAPSHOT_DIRECTORY, "acceptedRequestSequences.bin");
+        try {
+          if (file.exists()) {
+            for (Object sequence : (Collection<?>) BinaryCodec.readFile(file, SharedObject::getUser)) {
+              acceptedRequestSequences.add((Long) sequence);
+            }
+          } else {
+            for (Request request : getAcceptedRequests(getRequests())) {
+              acceptedRequestSequences.add(request.getSequence());
+            }
+            dirtyStructures.add("acceptedRequestSequences.bin");
+          }
+        } catch (ClassNotFoundException e) {
+          throw new IOException(e);
+        }
+        acceptedRequestSequencesLoaded = true;
       }
-      return new ArrayList<>(userEvents.get(user));
     }
+    return acceptedRequestSequences;
+  }
+
+  /**
+   * Returns the number of requests stored in the shared object, without reading the requests themselves.
+   *
+   * @return the number of requests
+   * @throws IOException if the saved sequence numbers cannot be read
+   */
+  public static int getRequestCount() throws IOException {
+    return getRequestSequences().size();
+  }
+
+  /**
+   * Returns the number of accepted requests, without reading the requests themselves.
+   *
+   * @return the number of accepted requests
+   * @throws IOException if the saved sequence numbers cannot be read
+   */
+  public static int getAcceptedRequestCount() throws IOException {
+    return getAcceptedRequestSequences().size();
   }
 
   /**
@@ -210,14 +723,15 @@ public class SharedObject {
    */
   public static List<Request> getRequests() {
     List<Request> requests = new ArrayList<>();
-    synchronized (userEvents) {
-      for (Map.Entry<User, TreeSet<Event>> entry : userEvents.entrySet()) {
-        for (Event event : entry.getValue()) {
-          if (event instanceof Request) {
-            requests.add((Request) event);
-          }
-        }
-      }
+    Set<Long> sequences;
+    try {
+      sequences = new TreeSet<>(getRequestSequences());
+    } catch (IOException io) {
+      logger.severe("Error Loading Requests! " + io.getMessage());
+      return requests;
+    }
+    for (Event event : readEvents(sequences)) {
+      requests.add((Request) event);
     }
     return requests;
   }
@@ -239,7 +753,7 @@ public class SharedObject {
   }
 
   /**
-   * Adds an event to the list of events to be delivered.
+   * Adds an event to the lanes of events to be delivered, waking up the thread waiting for it.
    * 
    * @param event the event to be added
    * @throws IllegalArgumentException if the event is null
@@ -248,35 +762,172 @@ public class SharedObject {
     if (event == null) {
       throw new IllegalArgumentException("Event cannot be null!");
     }
-    synchronized (eventsToDeliver) {
-      eventsToDeliver.add(event);
-    }
+    eventsToDeliver.add(event);
+    log(Mutation.addEventToDeliver(event));
+  }
+
+  /**
+   * Removes the next event to be delivered from the lanes, high priority first, waiting until there is one.
+   *
+   * @return the next event to be delivered
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public static Event takeEventToDeliver() throws InterruptedException {
+    return eventsToDeliver.take();
   }
 
   /**
-   * Returns the list of events to be delivered.
+   * Tells whether an event is delivered ahead of bulk traffic.
    *
-   * @return The list of events to be delivered.
+   * @param event the event to be classified
+   * @return true if the event is a request or was sent by a user of a high enough role, false otherwise
+   */
+  public static boolean isHighPriority(Event event) {
+    return eventsToDeliver.isHighPriority(event);
+  }
+
+  /**
+   * Retrieves the outbox of events waiting to be delivered to a user, creating it if needed.
+   *
+   * @param user the user whose outbox is to be retrieved
+   * @return the outbox of the user
+   * @throws IllegalArgumentException if the user is null
    */
-  public static List<? extends Event> getEventsToDeliver() {
-    synchronized (eventsToDeliver) {
-      return eventsToDeliver;
+  public static Outbox getOutbox(User user) {
+    if (user == null) {
+      throw new IllegalArgumentException("User cannot be null!");
     }
+    return outboxes.computeIfAbsent(user, key -> new Outbox(Server.DELIVERY_HIGH_BURST));
   }
 
   /**
-   * Removes the specified event from the list of events to be delivered.
-   * 
-   * @param event the event to be removed
-   * @throws IllegalArgumentException if the event is null
+   * Stores an event that could not be delivered to a user after every retry.
+   *
+   * @param user  the user the event could not be delivered to
+   * @param event the undelivered event
+   * @throws IllegalArgumentException if the user or the event is null
    */
-  public static <T extends Event> void removeEventDelivered(T event) {
+  public static void addDeadLetter(User user, Event event) {
+    if (user == null) {
+      throw new IllegalArgumentException("User cannot be null!");
+    }
     if (event == null) {
       throw new IllegalArgumentException("Event cannot be null!");
     }
-    synchronized (eventsToDeliver) {
-      eventsToDeliver.remove(event);
+    synchronized (deadLetters) {
+      if (!deadLetters.containsKey(user)) {
+        deadLetters.put(user, new ArrayList<>());
+      }
+      deadLetters.get(user).add(event);
+    }
+    dirtyStructures.add("deadLetters.bin");
+  }
+
+  /**
+   * Counts the events that could not be delivered, over every user.
+   *
+   * @return the number of dead letters waiting to be replayed
+   */
+  public static int getDeadLetterCount() {
+    int count = 0;
+    synchronized (deadLetters) {
+      for (List<Event> events : deadLetters.values()) {
+        count += events.size();
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Removes the events that could not be delivered to a user, so they can be delivered once more.
+   *
+   * @param user the user whose dead letters are to be replayed
+   * @return a list of the undelivered events, in the order they were given up on
+   * @throws IllegalArgumentException if the user is null
+   */
+  public static List<Event> replayDeadLetters(User user) {
+    if (user == null) {
+      throw new IllegalArgumentException("User cannot be null!");
+    }
+    List<Event> events;
+    synchronized (deadLetters) {
+      events = deadLetters.remove(user);
+    }
+    if (events == null) {
+      return new ArrayList<>();
     }
+    dirtyStructures.add("deadLetters.bin");
+    return events;
+  }
+
+  /**
+   * Removes the events that could not be delivered to a user, returning only the ones its history will not send again.
+   * Dead letters newer than the start of the history are part of it, so replaying them as well would deliver them twice.
+   *
+   * @param user the user whose dead letters are to be replayed
+   * @param since the sequence number the user's history starts after
+   * @return a list of the undelivered events missing from the history, in the order they were given up on
+   * @throws IllegalArgumentException if the user is null
+   */
+  public static List<Event> replayDeadLetters(User user, long since) {
+    List<Event> events = replayDeadLetters(user);
+    events.removeIf(event -> isInHistory(user, event, since));
+    return events;
+  }
+
+  /**
+   * Tells whether an event is sent again by a user's history starting after a sequence number.
+   *
+   * @param user the user
+   * @param event the event
+   * @param since the sequence number the user's history starts after
+   * @return true if the history sends the event, false otherwise
+   */
+  public static boolean isInHistory(User user, Event event, long since) {
+    return event.getSequence() > since && containsUserEvent(user, event.getSequence());
+  }
+
+  /**
+   * Tells whether an event is associated with a user, either in its own events or in a shared log it reads.
+   *
+   * @param user the user
+   * @param sequence the sequence number of the event
+   * @return true if the event is part of the user's history, false otherwise
+   */
+  private static boolean containsUserEvent(User user, long sequence) {
+    loadPartition(user);
+    synchronized (userEvents) {
+      if (getPartition(user).contains(sequence)) {
+        return true;
+      }
+    }
+    Map<String, EventLog> logs;
+    try {
+      logs = getEventLogs();
+    } catch (IOException io) {
+      logger.severe("Error Loading Event Logs! " + io.getMessage());
+      return false;
+    }
+    for (Map.Entry<String, Long> cursor : getCursors(user).entrySet()) {
+      EventLog log = logs.get(cursor.getKey());
+      if (log != null && sequence > cursor.getValue() && log.contains(sequence)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns every event still waiting to be delivered, whether queued or in an outbox.
+   *
+   * @return a list of the events pending delivery
+   */
+  private static List<Event> getEventsPendingDelivery() {
+    List<Event> events = eventsToDeliver.getEvents();
+    for (Outbox outbox : outboxes.values()) {
+      events.addAll(outbox.getEvents());
+    }
+    return events;
   }
   //#endregion
 
@@ -304,6 +955,8 @@ public class SharedObject {
       }
       groups.get(group).add(user);
     }
+    subscribe(user, group);
+    log(Mutation.addUserToGroup(group, user));
   }
 
   /**
@@ -328,102 +981,724 @@ public class SharedObject {
 
   //#region Sockets Management
   /**
-   * Returns the multicast socket used for communication.
+   * Returns the multicast channel used for communication.
    *
-   * @return the multicast socket
+   * @return the multicast channel
    */
-  public static MulticastSocket getMulticastSocket() {
-    return multicastSocket;
+  public static DatagramChannel getMulticastChannel() {
+    return multicastChannel;
   }
 
   /**
-   * Sets the multicast socket for the shared object.
+   * Sets the multicast channel for the shared object.
    *
-   * @param multicastSocket the multicast socket to be set
+   * @param multicastChannel the multicast channel to be set
    */
-  public static void setMulticastSocket(MulticastSocket multicastSocket) {
-    SharedObject.multicastSocket = multicastSocket;
+  public static void setMulticastChannel(DatagramChannel multicastChannel) {
+    SharedObject.multicastChannel = multicastChannel;
   }
 
   /**
-   * Returns the broadcast socket used for sending datagrams.
+   * Joins the multicast channel to a group, on the configured network interface or else the one the system routes
+   * the group through, as a MulticastSocket joining without an interface would.
+   * Joining a group the channel is already a member of has no effect.
    *
-   * @return the broadcast socket
+   * @param group the address of the group to join
+   * @throws IOException if the group cannot be joined or the interface cannot be found
    */
-  public static DatagramSocket getBroadcastSocket() {
-    return broadcastSocket;
+  public static void joinMulticastGroup(InetAddress group) throws IOException {
+    NetworkInterface networkInterface = findMulticastInterface(group);
+    synchronized (multicastChannel) {
+      multicastChannel.join(group, networkInterface);
+    }
+  }
+
+  /**
+   * Finds the network interface to join a multicast group on.
+   * Unless an interface is configured with the multicastInterface property, this is the interface of the address
+   * the system picks to reach the group, so a merely present interface such as a container bridge is not chosen.
+   *
+   * @param group the address of the group
+   * @return the network interface
+   * @throws SocketException if the configured interface does not exist or the route has no interface
+   */
+  private static NetworkInterface findMulticastInterface(InetAddress group) throws SocketException {
+    if (Server.MULTICAST_INTERFACE != null) {
+      NetworkInterface networkInterface = NetworkInterface.getByName(Server.MULTICAST_INTERFACE);
+      if (networkInterface == null) {
+        throw new SocketException("No network interface named " + Server.MULTICAST_INTERFACE + "!");
+      }
+      return networkInterface;
+    }
+    // Connecting a datagram socket sends nothing, it only resolves the route and so the local address
+    try (DatagramSocket probe = new DatagramSocket()) {
+      probe.connect(group, Server.MULTICAST_PORT);
+      NetworkInterface networkInterface = NetworkInterface.getByInetAddress(probe.getLocalAddress());
+      if (networkInterface == null) {
+        throw new SocketException("No network interface routes to " + group.getHostAddress() + "!");
+      }
+      return networkInterface;
+    }
   }
 
   /**
-   * Sets the broadcast socket for the shared object.
+   * Returns the broadcast channel used for sending datagrams.
    *
-   * @param broadcastSocket the DatagramSocket to set as the broadcast socket
+   * @return the broadcast channel
    */
-  public static void setBroadcastSocket(DatagramSocket broadcastSocket) {
-    SharedObject.broadcastSocket = broadcastSocket;
+  public static DatagramChannel getBroadcastChannel() {
+    return broadcastChannel;
+  }
+
+  /**
+   * Sets the broadcast channel for the shared object.
+   *
+   * @param broadcastChannel the channel to set as the broadcast channel
+   */
+  public static void setBroadcastChannel(DatagramChannel broadcastChannel) {
+    SharedObject.broadcastChannel = broadcastChannel;
   }
   //#endregion
 
   //#region Data Persistence
   /**
-   * Retrieves the data structures used in the application.
-   * 
-   * @return A map containing the data structures.
+   * Marks the saved copies a logged mutation makes stale, so the next save rewrites only those.
+   *
+   * @param mutation the mutation applied to the data structures
    */
-  private static Map<String, Object> getDataStructures() {
-    Map<String, Object> structures = new HashMap<>();
-    structures.put("users.bin", users);
-    structures.put("userEvents.bin", userEvents);
-    structures.put("eventsToDeliver.bin", eventsToDeliver);
-    structures.put("groups.bin", groups);
-    return structures;
+  private static void markDirty(Mutation mutation) {
+    Event event = mutation.getEvent();
+    switch (mutation.getType()) {
+      case ADD_USER:
+        dirtyStructures.add("users.bin");
+        dirtyStructures.add("logCursors.bin");
+        break;
+      case ADD_USER_EVENT:
+        dirtyUserEvents.add(mutation.getUser().getUsername());
+        break;
+      case ADD_SHARED_EVENT:
+        dirtyStructures.add("eventLogs.bin");
+        break;
+      case ADD_EVENT_TO_DELIVER:
+        dirtyStructures.add("eventsToDeliver.bin");
+        break;
+      case ADD_USER_TO_GROUP:
+        dirtyStructures.add("groups.bin");
+        dirtyStructures.add("logCursors.bin");
+        break;
+      case SET_ACCEPTER:
+        dirtyStructures.add("eventsToDeliver.bin");
+        dirtyStructures.add("acceptedRequestSequences.bin");
+        break;
+      case ACKNOWLEDGE:
+        dirtyStructures.add("ackedSequences.bin");
+        break;
+    }
+    if (event instanceof Request) {
+      dirtyStructures.add("requestSequences.bin");
+    }
+  }
+
+  /**
+   * Records a mutation in the write-ahead log and marks the saved copies it makes stale.
+   *
+   * @param mutation the mutation applied to the data structures
+   */
+  private static void log(Mutation mutation) {
+    // Marked first, so a save that runs between the two cannot rotate past the mutation and leave it unsaved
+    markDirty(mutation);
+    writeAheadLog.append(mutation);
+  }
+
+  /**
+   * Marks every saved copy stale, so the next save rewrites all of them.
+   */
+  private static void markAllDirty() {
+    dirtyStructures.addAll(STRUCTURES);
+    synchronized (users) {
+      dirtyUserEvents.addAll(users.keySet());
+    }
+  }
+
+  /**
+   * Removes and returns every element of a set of dirty markers.
+   * An element marked again while it is being saved stays marked for the next save.
+   *
+   * @param dirty the set of dirty markers
+   * @return the elements that were marked
+   */
+  private static Set<String> takeDirty(Set<String> dirty) {
+    Set<String> taken = new HashSet<>();
+    for (Iterator<String> iterator = dirty.iterator(); iterator.hasNext();) {
+      taken.add(iterator.next());
+      iterator.remove();
+    }
+    return taken;
+  }
+
+  /**
+   * Returns the sequence numbers of a list of events.
+   *
+   * @param events the events
+   * @return the sequence numbers of the events, in the same order
+   */
+  private static List<Long> getSequences(Collection<?> events) {
+    List<Long> sequences = new ArrayList<>();
+    for (Object event : events) {
+      sequences.add(((Event) event).getSequence());
+    }
+    return sequences;
+  }
+
+  /**
+   * Retrieves a point-in-time copy of one of the data structures used in the application.
+   * The structure is copied while holding its own lock, so writers are only held up for the copy
+   * and never while the copy is written to disk.
+   *
+   * @param name the file name the structure is saved to
+   * @return the copy of the data structure
+   * @throws IOException if the structure is not loaded yet and cannot be read
+   */
+  private static Object copyStructure(String name) throws IOException {
+    switch (name) {
+      case "users.bin":
+        synchronized (users) {
+          return new HashMap<>(users);
+        }
+      case "requestSequences.bin":
+        return new HashSet<>(getRequestSequences());
+      case "acceptedRequestSequences.bin":
+        return new HashSet<>(getAcceptedRequestSequences());
+      case "eventsToDeliver.bin":
+        return getEventsPendingDelivery();
+      case "groups.bin":
+        Map<String, List<User>> groupsCopy = new HashMap<>();
+        synchronized (groups) {
+          for (Map.Entry<String, List<User>> entry : groups.entrySet()) {
+            groupsCopy.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+          }
+        }
+        return groupsCopy;
+      case "deadLetters.bin":
+        Map<User, List<Event>> deadLettersCopy = new HashMap<>();
+        synchronized (deadLetters) {
+          for (Map.Entry<User, List<Event>> entry : deadLetters.entrySet()) {
+            deadLettersCopy.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+          }
+        }
+        return deadLettersCopy;
+      case "eventLogs.bin":
+        Map<String, EventLog> eventLogsCopy = new HashMap<>();
+        for (Map.Entry<String, EventLog> entry : getEventLogs().entrySet()) {
+          eventLogsCopy.put(entry.getKey(), entry.getValue().copy());
+        }
+        return eventLogsCopy;
+      case "logCursors.bin":
+        Map<User, Map<String, Long>> logCursorsCopy = new HashMap<>();
+        synchronized (logCursors) {
+          for (Map.Entry<User, Map<String, Long>> entry : logCursors.entrySet()) {
+            logCursorsCopy.put(entry.getKey(), new HashMap<>(entry.getValue()));
+          }
+        }
+        return logCursorsCopy;
+      case "ackedSequences.bin":
+        return new HashMap<>(ackedSequences);
+      default:
+        throw new IllegalArgumentException("Unknown data structure " + name + "!");
+    }
+  }
+
+  /**
+   * Retrieves a point-in-time copy of the events of a user, the partition the user's events are saved to.
+   *
+   * @param username the username of the user
+   * @return the copy of the sequence numbers of the user's events, or null if they could not be read
+   */
+  private static TreeSet<Long> copyUserEvents(String username) {
+    User user = getUser(username);
+    if (user == null) {
+      return new TreeSet<>();
+    }
+    loadPartition(user);
+    synchronized (userEvents) {
+      return partitionUses.containsKey(user) ? new TreeSet<>(getPartition(user)) : null;
+    }
+  }
+
+  /**
+   * Populates a data structure from its saved copy.
+   *
+   * @param name  the file name the structure was saved to
+   * @param value the saved copy of the structure
+   */
+  private static void loadStructure(String name, Object value) {
+    switch (name) {
+      case "users.bin":
+        users.putAll((Map<String, User>) value);
+        break;
+      case "userEvents.bin":
+        // Data saved before the event store existed holds the events themselves, which are stored on the way in
+        for (Map.Entry<User, TreeSet<?>> entry : ((Map<User, TreeSet<?>>) value).entrySet()) {
+          TreeSet<Long> sequences = userEvents.computeIfAbsent(entry.getKey(), key -> new TreeSet<>());
+          for (Object element : entry.getValue()) {
+            if (element instanceof Event) {
+              if (storeEvent((Event) element)) {
+                sequences.add(((Event) element).getSequence());
+              }
+            } else {
+              sequences.add((Long) element);
+            }
+          }
+        }
+        break;
+      case "eventOffsets.bin":
+        // Offsets saved before the index was split into chunks are added to it, to be saved again as chunks
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+          try {
+            eventIndex.put((Long) entry.getKey(), (Long) entry.getValue());
+          } catch (IOException io) {
+            throw new UncheckedIOException(io);
+          }
+          EventImpl.advanceSequence((Long) entry.getKey());
+        }
+        break;
+      case "requestSequences.bin":
+        synchronized (requestSequences) {
+          for (Object sequence : (Collection<?>) value) {
+            requestSequences.add((Long) sequence);
+          }
+          requestSequencesLoaded = true;
+        }
+        break;
+      case "eventsToDeliver.bin":
+        eventsToDeliver.addAll((List<Event>) value);
+        break;
+      case "groups.bin":
+        groups.putAll((Map<String, List<User>>) value);
+        break;
+      case "deadLetters.bin":
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+          List<Event> letters = new ArrayList<>();
+          for (Object letter : (Collection<?>) entry.getValue()) {
+            letters.add((Event) letter);
+          }
+          deadLetters.put((User) entry.getKey(), letters);
+        }
+        break;
+      case "eventLogs.bin":
+        synchronized (eventLogs) {
+          for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+            eventLogs.put((String) entry.getKey(), (EventLog) entry.getValue());
+          }
+          eventLogsLoaded = true;
+        }
+        break;
+      case "logCursors.bin":
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+          Map<String, Long> cursors = new HashMap<>();
+          for (Map.Entry<?, ?> cursor : ((Map<?, ?>) entry.getValue()).entrySet()) {
+            String log = (String) cursor.getKey();
+            if (cursor.getValue() instanceof Integer) {
+              // Cursors saved before they were sequence numbers hold positions, converted once and saved again
+              cursors.put(log, getSequenceBefore(log, (Integer) cursor.getValue()));
+              dirtyStructures.add("logCursors.bin");
+            } else {
+              cursors.put(log, (Long) cursor.getValue());
+            }
+          }
+          logCursors.put((User) entry.getKey(), cursors);
+        }
+        break;
+      case "ackedSequences.bin":
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+          ackedSequences.put((User) entry.getKey(), (Long) entry.getValue());
+        }
+        break;
+    }
+  }
+
+  /**
+   * Converts a cursor saved as a position in a shared log to the sequence number of the event before that position.
+   *
+   * @param log      the name of the log
+   * @param position the position the cursor reads the log from
+   * @return the sequence number the cursor reads the log after, or 0 if it reads the log from its start
+   * @throws UncheckedIOException if the saved logs cannot be read
+   */
+  private static long getSequenceBefore(String log, int position) {
+    if (position <= 0) {
+      return 0;
+    }
+    long[] sequences;
+    try {
+      EventLog eventLog = getEventLogs().get(log);
+      sequences = eventLog != null ? eventLog.getSequences(0) : new long[0];
+    } catch (IOException io) {
+      throw new UncheckedIOException(io);
+    }
+    return sequences.length == 0 ? 0 : sequences[Math.min(position, sequences.length) - 1];
+  }
+
+  /**
+   * Returns the file a user's events are saved to.
+   *
+   * @param username the username of the user
+   * @return the partition file of the user
+   */
+  private static File getPartitionFile(String username) {
+    return new File(PARTITIONS_DIRECTORY, URLEncoder.encode(username, StandardCharsets.UTF_8) + ".bin");
+  }
+
+  /**
+   * Returns the single-file snapshots found on disk, in order.
+   *
+   * @return a map of the log segment each snapshot was taken at to its file
+   */
+  private static TreeMap<Long, File> getSnapshots() {
+    TreeMap<Long, File> snapshots = new TreeMap<>();
+    File[] files = new File(".").listFiles((dir, name) -> name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX));
+    if (files == null) {
+      return snapshots;
+    }
+    for (File file : files) {
+      String segment = file.getName().substring(SNAPSHOT_PREFIX.length(), file.getName().length() - SNAPSHOT_SUFFIX.length());
+      try {
+        snapshots.put(Long.parseLong(segment), file);
+      } catch (NumberFormatException ignored) {}
+    }
+    return snapshots;
   }
 
   /**
-   * Loads data from serialized files into the corresponding data structures.
-   * The method reads serialized objects from files and populates the appropriate data structures
-   * based on the file name.
+   * Loads the saved copies of the data structures, then replays only the mutations the write-ahead log recorded
+   * after the save they belong to.
+   * Users, groups and the other small structures are loaded at once, while the events of each user, the index of
+   * the stored events, the shared logs and the requests are left on disk until they are first needed,
+   * so loading takes the same time whatever the size of the history.
+   * Data saved in an older format, as a single snapshot or as one file per structure, is loaded in full when
+   * there is no manifest, and saved again in full by the next save.
+   * The write-ahead log is opened for new mutations even if loading fails, but nothing is saved unless loading succeeded.
    * 
    * @throws IOException            if an I/O error occurs while reading the files.
    * @throws ClassNotFoundException if the class of a serialized object cannot be found.
    */
   public static void loadData() throws IOException, ClassNotFoundException {
-    for (Map.Entry<String, Object> entry : getDataStructures().entrySet()) {
-      FileInputStream fileIn = new FileInputStream(entry.getKey());
-      ObjectInputStream in = new ObjectInputStream(fileIn);
+    long segment = 0;
+    try {
+      eventStore.open();
+      File manifest = new File(SNAPSHOT_DIRECTORY, "manifest");
+      if (manifest.exists()) {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(manifest))) {
+          segment = in.readLong();
+        }
+        for (String name : STRUCTURES) {
+          File file = new File(SNAPSHOT_DIRECTORY, name);
+          // The requests and the shared logs are read the first time they are needed
+          if (file.exists() && !name.equals("requestSequences.bin") && !name.equals("acceptedRequestSequences.bin")
+              && !name.equals("eventLogs.bin")) {
+            loadStructure(name, BinaryCodec.readFile(file, SharedObject::getUser));
+          }
+        }
+        File offsets = new File(SNAPSHOT_DIRECTORY, "eventOffsets.bin");
+        if (offsets.exists()) {
+          loadStructure("eventOffsets.bin", BinaryCodec.readFile(offsets, SharedObject::getUser));
+          markAllDirty();
+          migrating = true;
+        }
+        EventImpl.advanceSequence(eventIndex.getLastSequence());
+        savedPendingSequences = getSequences(eventsToDeliver.getEvents());
+      } else {
+        TreeMap<Long, File> snapshots = getSnapshots();
+        Map<String, Object> structures;
+        if (snapshots.isEmpty()) {
+          structures = readStructureFiles();
+        } else {
+          segment = snapshots.lastKey();
+          structures = new HashMap<>();
+          Object snapshot = BinaryCodec.readFile(snapshots.lastEntry().getValue(), SharedObject::getUser);
+          for (Map.Entry<?, ?> entry : ((Map<?, ?>) snapshot).entrySet()) {
+            structures.put((String) entry.getKey(), entry.getValue());
+          }
+        }
+        numberLegacyEvents(structures);
+        // The shared logs are loaded first, as cursors saved as positions in them are converted with them
+        if (structures.containsKey("eventLogs.bin")) {
+          loadStructure("eventLogs.bin", structures.remove("eventLogs.bin"));
+        }
+        for (Map.Entry<String, Object> entry : structures.entrySet()) {
+          loadStructure(entry.getKey(), entry.getValue());
+        }
+        markAllDirty();
+        migrating = true;
+      }
+      replayLog(segment);
+      loaded = true;
+    } finally {
+      writeAheadLog.open(segment);
+    }
+  }
+
+  /**
+   * Reads the data structures from the separate files they were saved to before snapshots existed.
+   *
+   * @return a map of the name of each structure found to its saved copy
+   * @throws IOException            if an I/O error occurs while reading the files.
+   * @throws ClassNotFoundException if the class of a serialized object cannot be found.
+   */
+  private static Map<String, Object> readStructureFiles() throws IOException, ClassNotFoundException {
+    Map<String, Object> structures = new HashMap<>();
+    for (String name : LEGACY_STRUCTURES) {
+      // Structures added after the data was saved start empty
+      if (!new File(name).exists()) {
+        continue;
+      }
+      structures.put(name, BinaryCodec.readFile(new File(name), SharedObject::getUser));
+    }
+    return structures;
+  }
+
+  /**
+   * Numbers the events of saved structures that were saved before sequence numbers existed.
+   * Every structure is read first, so an event saved both in a user's events and pending delivery
+   * is given a single number, and the events are numbered by date rather than in the order they were read.
+   * Sets of such events were deserialized while every event compared equal, so they are only ever iterated,
+   * never searched, until loadStructure rebuilds them.
+   *
+   * @param structures a map of the name of each saved structure to its saved copy
+   */
+  private static void numberLegacyEvents(Map<String, Object> structures) {
+    List<Event> legacy = new ArrayList<>();
+    if (structures.containsKey("userEvents.bin")) {
+      for (Object elements : ((Map<?, ?>) structures.get("userEvents.bin")).values()) {
+        addLegacyEvents(legacy, (Collection<?>) elements);
+      }
+    }
+    if (structures.containsKey("eventsToDeliver.bin")) {
+      addLegacyEvents(legacy, (Collection<?>) structures.get("eventsToDeliver.bin"));
+    }
+    if (structures.containsKey("deadLetters.bin")) {
+      for (Object elements : ((Map<?, ?>) structures.get("deadLetters.bin")).values()) {
+        addLegacyEvents(legacy, (Collection<?>) elements);
+      }
+    }
+    if (!legacy.isEmpty()) {
+      logger.info("Numbering " + legacy.size() + " events saved before sequence numbers existed");
+      EventImpl.numberLegacyEvents(legacy);
+    }
+  }
+
+  /**
+   * Adds the events without a sequence number found in a saved collection to a list.
+   *
+   * @param legacy   the list to add the events to
+   * @param elements the saved collection, of events or of sequence numbers
+   */
+  private static void addLegacyEvents(List<Event> legacy, Collection<?> elements) {
+    for (Object element : elements) {
+      if (element instanceof Event && ((Event) element).getSequence() == 0) {
+        legacy.add((Event) element);
+      }
+    }
+  }
 
-      switch (entry.getKey()) {
-        case "users.bin":
-          users.putAll((Map<String, User>) in.readObject());
+  /**
+   * Saves the data structures and the per-user partitions changed since the last save,
+   * without stopping the threads that modify them. Nothing is written when nothing changed.
+   * The write-ahead log is rotated first, so the save covers every mutation logged in the previous segments.
+   * Each changed copy replaces its file atomically, then the manifest is rewritten to point past the covered
+   * log segments, which are then discarded. Nothing is saved if the data failed to load.
+   * The data saved in older formats is only deleted after a save that rewrote all of it;
+   * a save that could not rewrite every partition leaves everything marked to be saved again in full.
+   *
+   * @return true if anything was saved, false if nothing changed since the last save or the data failed to load
+   * @throws IOException if an I/O error occurs while saving the data.
+   */
+  public static synchronized boolean saveData() throws IOException {
+    // Saving over data that failed to load would hide it from the next load
+    if (!loaded) {
+      return false;
+    }
+    // Delivering an event is not logged, so the events pending delivery are compared with the ones last saved
+    if (!getSequences(getEventsPendingDelivery()).equals(savedPendingSequences)) {
+      dirtyStructures.add("eventsToDeliver.bin");
+    }
+    if (dirtyStructures.isEmpty() && dirtyUserEvents.isEmpty() && !eventIndex.isDirty()) {
+      return false;
+    }
+    long segment = writeAheadLog.rotate();
+    Set<String> structures = takeDirty(dirtyStructures);
+    Set<String> partitions = takeDirty(dirtyUserEvents);
+    boolean complete = structures.containsAll(STRUCTURES);
+    try {
+      Map<String, Object> copies = new HashMap<>();
+      for (String name : structures) {
+        copies.put(name, copyStructure(name));
+      }
+      Map<String, TreeSet<Long>> partitionCopies = new HashMap<>();
+      for (String username : partitions) {
+        TreeSet<Long> copy = copyUserEvents(username);
+        if (copy == null) {
+          // A partition that could not be read is not overwritten
+          dirtyUserEvents.add(username);
+          complete = false;
+        } else {
+          partitionCopies.put(username, copy);
+        }
+      }
+      // The offsets saved must point to events already on disk
+      eventStore.force();
+      eventIndex.save();
+      PARTITIONS_DIRECTORY.mkdirs();
+      for (Map.Entry<String, Object> copy : copies.entrySet()) {
+        BinaryCodec.writeFile(new File(SNAPSHOT_DIRECTORY, copy.getKey()), copy.getValue(), copy.getKey().equals("users.bin"));
+      }
+      for (Map.Entry<String, TreeSet<Long>> copy : partitionCopies.entrySet()) {
+        BinaryCodec.writeFile(getPartitionFile(copy.getKey()), copy.getValue(), false);
+      }
+      if (copies.containsKey("eventsToDeliver.bin")) {
+        savedPendingSequences = getSequences((Collection<?>) copies.get("eventsToDeliver.bin"));
+      }
+    } catch (IOException | RuntimeException e) {
+      // The copies not known to be saved are saved again next time
+      dirtyStructures.addAll(structures);
+      dirtyUserEvents.addAll(partitions);
+      throw e;
+    }
+    File manifest = new File(SNAPSHOT_DIRECTORY, "manifest");
+    File temporary = new File(SNAPSHOT_DIRECTORY, "manifest.tmp");
+    try (FileOutputStream fileOut = new FileOutputStream(temporary);
+        DataOutputStream out = new DataOutputStream(fileOut)) {
+      out.writeLong(segment);
+      out.flush();
+      fileOut.getFD().sync();
+    }
+    Files.move(temporary.toPath(), manifest.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    if (migrating) {
+      if (!complete) {
+        markAllDirty();
+        return true;
+      }
+      for (File snapshot : getSnapshots().values()) {
+        snapshot.delete();
+      }
+      for (String name : LEGACY_STRUCTURES) {
+        new File(name).delete();
+      }
+      new File(SNAPSHOT_DIRECTORY, "eventOffsets.bin").delete();
+      migrating = false;
+    }
+    writeAheadLog.discardBefore(segment);
+    return true;
+  }
+
+  /**
+   * Evicts from memory the events of the users and the chunks of the event index that are saved
+   * and were not used for Server.PARTITION_IDLE_TIMEOUT, to be read again from disk when next needed.
+   * Never runs while the data is being saved.
+   */
+  public static synchronized void evictColdPartitions() {
+    long now = System.currentTimeMillis();
+    synchronized (userEvents) {
+      for (Iterator<Map.Entry<User, Long>> uses = partitionUses.entrySet().iterator(); uses.hasNext();) {
+        Map.Entry<User, Long> use = uses.next();
+        if (now - use.getValue() >= Server.PARTITION_IDLE_TIMEOUT && !dirtyUserEvents.contains(use.getKey().getUsername())) {
+          userEvents.remove(use.getKey());
+          uses.remove();
+        }
+      }
+    }
+    eventIndex.evict(Server.PARTITION_IDLE_TIMEOUT);
+  }
+
+  /**
+   * Replays the mutations recorded in the write-ahead log on top of the loaded data structures.
+   * Mutations made while the last save was running may already be in the loaded data,
+   * so replaying is idempotent: events are matched by sequence number and users by username.
+   * Events queued for delivery are queued again unless their receiver acknowledged them meanwhile.
+   *
+   * @param segment the first log segment to be replayed
+   * @throws IOException            if an I/O error occurs while reading the log.
+   * @throws ClassNotFoundException if the class of a logged object cannot be found.
+   */
+  private static void replayLog(long segment) throws IOException, ClassNotFoundException {
+    Set<Long> pendingSequences = new HashSet<>();
+    for (Event event : eventsToDeliver.getEvents()) {
+      pendingSequences.add(event.getSequence());
+    }
+    List<Event> toDeliver = new ArrayList<>();
+    writeAheadLog.replay(segment, mutation -> {
+      markDirty(mutation);
+      Event event = mutation.getEvent();
+      User user = mutation.getUser() == null ? null : users.getOrDefault(mutation.getUser().getUsername(), mutation.getUser());
+      switch (mutation.getType()) {
+        case ADD_USER:
+          if (!users.containsKey(user.getUsername())) {
+            users.put(user.getUsername(), user);
+            subscribe(user, BROADCAST_LOG);
+          }
           break;
-        case "userEvents.bin":
-          userEvents.putAll((Map<User, TreeSet<Event>>) in.readObject());
+        case ADD_USER_EVENT:
+          if (storeEvent(event)) {
+            loadPartition(user);
+            synchronized (userEvents) {
+              getPartition(user).add(event.getSequence());
+            }
+          }
+          break;
+        case ADD_SHARED_EVENT:
+          EventLog log;
+          try {
+            log = getEventLogs().computeIfAbsent(mutation.getName(), key -> new EventLog());
+          } catch (IOException io) {
+            throw new UncheckedIOException(io);
+          }
+          if (storeEvent(event) && !log.contains(event.getSequence())) {
+            log.append(event.getSequence());
+          }
           break;
-        case "eventsToDeliver.bin":
-          eventsToDeliver.addAll((List<Event>) in.readObject());
+        case ADD_EVENT_TO_DELIVER:
+          if (pendingSequences.add(event.getSequence())) {
+            toDeliver.add(event);
+          }
+          break;
+        case ADD_USER_TO_GROUP:
+          List<User> members = groups.computeIfAbsent(mutation.getName(), key -> new ArrayList<>());
+          if (!members.contains(user)) {
+            members.add(user);
+          }
+          subscribe(user, mutation.getName());
           break;
-        case "groups.bin":
-          groups.putAll((Map<String, List<User>>) in.readObject());
+        case SET_ACCEPTER:
+          setRequestAccepterCopies((Request) event, user, toDeliver);
+          break;
+        case ACKNOWLEDGE:
+          ackedSequences.merge(user, mutation.getSequence(), Math::max);
           break;
       }
-
-      in.close();
-      fileIn.close();
+    });
+    for (Event event : toDeliver) {
+      if (!(event.getReceiver() instanceof User) || event.getSequence() > getAckedSequence((User) event.getReceiver())) {
+        eventsToDeliver.add(event);
+      }
     }
   }
 
   /**
-   * Saves the data of all the data structures to separate files.
-   * Each data structure is saved using its corresponding key as the file name.
-   * @throws IOException if an I/O error occurs while saving the data.
+   * Applies a logged accepter change to the stored request and to the copies waiting for delivery.
+   *
+   * @param request the accepted request, as logged
+   * @param accepter the user who accepted the request
+   * @param toDeliver the replayed events not yet queued for delivery
    */
-  public static void saveData() throws IOException {
-    for (Map.Entry<String, Object> entry : getDataStructures().entrySet()) {
-      FileOutputStream fileOut = new FileOutputStream("./" + entry.getKey());
-      ObjectOutputStream out = new ObjectOutputStream(fileOut);
-      out.writeObject(entry.getValue());
-      out.close();
-      fileOut.close();
+  private static void setRequestAccepterCopies(Request request, User accepter, List<Event> toDeliver) {
+    storeAcceptedRequest(request);
+    acceptedRequestSequences.add(request.getSequence());
+    List<Event> pending = eventsToDeliver.getEvents();
+    pending.addAll(toDeliver);
+    for (Event copy : pending) {
+      if (copy.getSequence() == request.getSequence()) {
+        ((Request) copy).setAccepter(accepter);
+      }
     }
   }
   //#endregion
@@ -0,0 +1,288 @@
+package server.dataStructures;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import server.Server;
+
+/**
+ * The WriteAheadLog class appends the mutations of the shared object to segment files on disk.
+ * Appending only queues a mutation; a single writer thread drains the queue, writes every mutation queued
+ * meanwhile and forces them to disk at once, so concurrent mutations share one write and one sync (group commit).
+ * Each record is a length-prefixed serialized mutation, so a record cut short by a crash is detected and ignored.
+ * The log is split into numbered segments: rotating starts a new segment, and the segments fully covered by a
+ * snapshot of the shared object can then be discarded.
+ */
+public class WriteAheadLog implements Runnable {
+  private static final Logger logger = Logger.getLogger(WriteAheadLog.class.getName());
+
+  private final String prefix;
+  private final BlockingQueue<Object> pending = new LinkedBlockingQueue<>();
+  private FileChannel channel;
+  private long segment;
+  private long lastSegment;
+
+  /**
+   * Represents a request, processed in order with the mutations, to start a new segment.
+   */
+  private static class Rotation {
+    private final long segment;
+
+    private Rotation(long segment) {
+      this.segment = segment;
+    }
+  }
+
+  /**
+   * Represents a request, processed in order with the mutations, to delete the segments before a given one.
+   */
+  private static class Discard {
+    private final long segment;
+
+    private Discard(long segment) {
+      this.segment = segment;
+    }
+  }
+
+  /**
+   * Constructs a new WriteAheadLog whose segments are named after the given prefix.
+   *
+   * @param prefix the prefix of the segment file names
+   */
+  public WriteAheadLog(String prefix) {
+    this.prefix = prefix;
+  }
+
+  /**
+   * Returns the segment files of the log found on disk, in order.
+   *
+   * @return a map of the segment numbers to their files
+   */
+  private TreeMap<Long, File> getSegments() {
+    TreeMap<Long, File> segments = new TreeMap<>();
+    File[] files = new File(".").listFiles((dir, name) -> name.startsWith(prefix + "-") && name.endsWith(".wal"));
+    if (files == null) {
+      return segments;
+    }
+    for (File file : files) {
+      String number = file.getName().substring(prefix.length() + 1, file.getName().length() - ".wal".length());
+      try {
+        segments.put(Long.parseLong(number), file);
+      } catch (NumberFormatException ignored) {}
+    }
+    return segments;
+  }
+
+  /**
+   * Returns the file of a segment.
+   *
+   * @param segment the number of the segment
+   * @return the file of the segment
+   */
+  private File getSegmentFile(long segment) {
+    return new File(prefix + "-" + segment + ".wal");
+  }
+
+  /**
+   * Reads the mutations found in the segments on disk from a given segment onwards, in the order they were appended.
+   * A record cut short at the end of a segment ends the replay of that segment.
+   *
+   * @param from     the number of the first segment to be replayed
+   * @param consumer the consumer the mutations are handed to
+   * @throws IOException            if an I/O error occurs while reading
+   * @throws ClassNotFoundException if the class of a serialized mutation cannot be found
+   */
+  public void replay(long from, Consumer<Mutation> consumer) throws IOException, ClassNotFoundException {
+    for (File file : getSegments().tailMap(from).values()) {
+      int records = 0;
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+        while (true) {
+          byte[] record;
+          try {
+            int length = in.readInt();
+            if (length < 0) {
+              break;
+            }
+            record = new byte[length];
+            in.readFully(record);
+          } catch (EOFException eof) {
+            break;
+          }
+          try (ObjectInputStream recordIn = new ObjectInputStream(new ByteArrayInputStream(record))) {
+            consumer.accept((Mutation) recordIn.readObject());
+          }
+          records++;
+        }
+      }
+      logger.info("Replayed " + records + " mutations from " + file.getName());
+    }
+  }
+
+  /**
+   * Opens a new segment after the ones on disk and starts the writer thread.
+   * Mutations appended before the log is opened are written once it is.
+   *
+   * @param minimum the lowest number the new segment may have, so it sorts after the snapshot it follows
+   * @throws IOException if the segment cannot be created
+   */
+  public synchronized void open(long minimum) throws IOException {
+    TreeMap<Long, File> segments = getSegments();
+    segment = Math.max(minimum, segments.isEmpty() ? 1 : segments.lastKey() + 1);
+    lastSegment = segment;
+    channel = FileChannel.open(getSegmentFile(segment).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    Thread writer = new Thread(this, "write-ahead-log");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * Appends a mutation to the log.
+   *
+   * @param mutation the mutation to be appended
+   */
+  public void append(Mutation mutation) {
+    pending.add(mutation);
+  }
+
+  /**
+   * Starts a new segment. Every mutation appended before this call goes to the previous segments.
+   *
+   * @return the number of the new segment
+   */
+  public synchronized long rotate() {
+    lastSegment++;
+    pending.add(new Rotation(lastSegment));
+    return lastSegment;
+  }
+
+  /**
+   * Deletes the segments before a given one, once they are fully written.
+   *
+   * @param segment the number of the first segment to be kept
+   */
+  public void discardBefore(long segment) {
+    pending.add(new Discard(segment));
+  }
+
+  /**
+   * Runs the writer, committing the queued mutations in batches.
+   * A batch that cannot be written is kept and retried with exponential backoff, together with the mutations
+   * queued meanwhile, so no mutation is lost while the disk is failing.
+   */
+  @Override
+  public void run() {
+    List<Object> batch = new ArrayList<>();
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    int written = 0;
+    long delay = Server.WAL_RETRY_BASE;
+    while (true) {
+      try {
+        if (batch.isEmpty()) {
+          batch.add(pending.take());
+        }
+      } catch (InterruptedException interrupted) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      pending.drainTo(batch);
+      try {
+        for (; written < batch.size(); written++) {
+          Object item = batch.get(written);
+          if (item instanceof Mutation) {
+            serialize((Mutation) item, buffer);
+            continue;
+          }
+          commit(buffer);
+          if (item instanceof Rotation) {
+            channel.close();
+            segment = ((Rotation) item).segment;
+            channel = FileChannel.open(getSegmentFile(segment).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+          } else if (item instanceof Discard) {
+            for (File file : getSegments().headMap(((Discard) item).segment).values()) {
+              if (!file.delete()) {
+                logger.warning("Could not delete " + file.getName() + "!");
+              }
+            }
+          }
+        }
+        commit(buffer);
+        batch.clear();
+        written = 0;
+        delay = Server.WAL_RETRY_BASE;
+      } catch (IOException io) {
+        logger.severe("Error Writing Write-Ahead Log, retrying in " + delay + " ms! " + io.getMessage());
+        try {
+          Thread.sleep(delay);
+        } catch (InterruptedException interrupted) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        delay = Math.min(delay * 2, Server.WAL_RETRY_MAX);
+      }
+    }
+  }
+
+  /**
+   * Serializes a mutation as a length-prefixed record.
+   *
+   * @param mutation the mutation to be serialized
+   * @param buffer   the buffer the record is appended to
+   */
+  private void serialize(Mutation mutation, ByteArrayOutputStream buffer) {
+    ByteArrayOutputStream record = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(record)) {
+      out.writeObject(mutation);
+    } catch (IOException io) {
+      // Retrying cannot make a mutation serializable, so it is left out rather than holding up the log
+      logger.severe("Error Serializing Mutation " + mutation.getType() + "! " + io.getMessage());
+      return;
+    }
+    buffer.writeBytes(ByteBuffer.allocate(Integer.BYTES).putInt(record.size()).array());
+    buffer.writeBytes(record.toByteArray());
+  }
+
+  /**
+   * Writes the buffered records to the current segment and forces them to disk.
+   * If the write fails, the segment is cut back to its previous size, so the records can be written again whole.
+   *
+   * @param buffer the buffer of records, emptied once written
+   * @throws IOException if an I/O error occurs while writing, leaving the buffer as it was
+   */
+  private void commit(ByteArrayOutputStream buffer) throws IOException {
+    if (buffer.size() == 0) {
+      return;
+    }
+    long size = channel.size();
+    ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+    try {
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+      channel.force(false);
+    } catch (IOException io) {
+      try {
+        channel.truncate(size);
+      } catch (IOException ignored) {}
+      throw io;
+    }
+    buffer.reset();
+  }
+}
@@ -1,14 +1,28 @@
 package server.dataStructures.classes;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import server.dataStructures.interfaces.Event;
 import server.dataStructures.interfaces.User;
 
 /**
  * Represents an abstract implementation of the Event interface.
+ * Events are ordered and identified by their sequence number, taken from a global counter when they are created.
  */
 public abstract class EventImpl implements Event {
+  private static final long serialVersionUID = 2898825040682872232L;
+  private static final AtomicLong sequences = new AtomicLong();
+
+  private long sequence;
   protected User sender;
   private Object receiver;
   private String content;
@@ -26,6 +40,74 @@ public abstract class EventImpl implements Event {
     this.receiver = receiver;
     this.content = content;
     this.date = new Date();
+    this.sequence = sequences.incrementAndGet();
+  }
+
+  /**
+   * Constructs an EventImpl object restored from its saved fields, keeping the counter ahead of its sequence number.
+   *
+   * @param sequence the sequence number of the event
+   * @param sender   the User who sent the event
+   * @param receiver the recipient of the event
+   * @param content  the content of the event
+   * @param date     the date of the event
+   */
+  protected EventImpl(long sequence, User sender, Object receiver, String content, Date date) {
+    this.sender = sender;
+    this.receiver = receiver;
+    this.content = content;
+    this.date = date;
+    this.sequence = sequence;
+    advanceSequence(sequence);
+  }
+
+  /**
+   * Moves the counter past a sequence number already in use, so new events are numbered after it.
+   *
+   * @param sequence the sequence number in use
+   */
+  public static void advanceSequence(long sequence) {
+    sequences.accumulateAndGet(sequence, Math::max);
+  }
+
+  /**
+   * Numbers the events saved before sequence numbers existed, once every structure holding them has been loaded.
+   * They are numbered in date order after every sequence number in use, and the separate copies of an event
+   * saved in several structures, equal in sender, receiver, content and date, are given the same number.
+   *
+   * @param events the loaded events without a sequence number, copies included, in the order they were read
+   */
+  public static void numberLegacyEvents(List<Event> events) {
+    List<Event> byDate = new ArrayList<>(events);
+    byDate.sort(Comparator.comparing(Event::getDate));
+    Map<List<Object>, Long> numbers = new HashMap<>();
+    for (Event event : byDate) {
+      Object receiver = event.getReceiver() instanceof User ? ((User) event.getReceiver()).getUsername() : event.getReceiver();
+      List<Object> identity = Arrays.asList(event.getSender().getUsername(), receiver, event.getContent(), event.getDate());
+      ((EventImpl) event).sequence = numbers.computeIfAbsent(identity, key -> sequences.incrementAndGet());
+    }
+  }
+
+  /**
+   * Restores a serialized event, keeping the counter ahead of every sequence number loaded.
+   * Events saved before sequence numbers existed are left at 0, to be numbered by numberLegacyEvents.
+   *
+   * @param in the stream to read the event from
+   * @throws IOException            if an I/O error occurs while reading
+   * @throws ClassNotFoundException if the class of a serialized object cannot be found
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    sequences.accumulateAndGet(sequence, Math::max);
+  }
+
+  /**
+   * Gets the sequence number of the event.
+   *
+   * @return the sequence number of the event
+   */
+  public long getSequence() {
+    return sequence;
   }
 
   /**
@@ -108,7 +190,7 @@ public abstract class EventImpl implements Event {
    */
   @Override
   public int compareTo(Event o) {
-    return this.date.compareTo(o.getDate());
+    return Long.compare(this.sequence, o.getSequence());
   }
 
   /**
@@ -119,10 +201,9 @@ public abstract class EventImpl implements Event {
    */
   @Override
   public boolean equals(Object obj) {
-    if (obj == null) return false;
     if (obj == null || getClass() != obj.getClass()) return false;
     Event event = (Event) obj;
-    return this.sender.equals(event.getSender()) && this.receiver.equals(event.getReceiver()) && this.content.equals(event.getContent()) && this.date.equals(event.getDate());
+    return this.sequence == event.getSequence();
   }
 
   /**
@@ -132,6 +213,6 @@ public abstract class EventImpl implements Event {
    */
   @Override
   public int hashCode() {
-    return sender.hashCode() + receiver.hashCode() + content.hashCode() + date.hashCode();
+    return Long.hashCode(sequence);
   }
 }
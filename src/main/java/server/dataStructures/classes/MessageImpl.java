@@ -1,5 +1,7 @@
 package server.dataStructures.classes;
 
+import java.util.Date;
+
 import server.dataStructures.interfaces.Message;
 import server.dataStructures.interfaces.User;
 
@@ -8,7 +10,8 @@ import server.dataStructures.interfaces.User;
  * Extends the EventImpl class and implements the Message interface.
  */
 public class MessageImpl extends EventImpl implements Message {
-  
+  private static final long serialVersionUID = 4238095075951091253L;
+
   /**
    * Constructs a new MessageImpl object.
    * 
@@ -19,4 +22,17 @@ public class MessageImpl extends EventImpl implements Message {
   public MessageImpl(User sender, Object receiver, String content) {
     super(sender, receiver, content);
   }
+
+  /**
+   * Constructs a MessageImpl object restored from its saved fields.
+   *
+   * @param sequence the sequence number of the message
+   * @param sender   the User who sent the message
+   * @param receiver the recipient of the message
+   * @param content  the content of the message
+   * @param date     the date of the message
+   */
+  public MessageImpl(long sequence, User sender, Object receiver, String content, Date date) {
+    super(sequence, sender, receiver, content, date);
+  }
 }
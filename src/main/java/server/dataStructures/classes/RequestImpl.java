@@ -1,5 +1,7 @@
 package server.dataStructures.classes;
 
+import java.util.Date;
+
 import server.dataStructures.interfaces.Request;
 import server.dataStructures.interfaces.User;
 
@@ -8,6 +10,7 @@ import server.dataStructures.interfaces.User;
  * Extends the EventImpl class and provides additional functionality for managing requests.
  */
 public class RequestImpl extends EventImpl implements Request {
+  private static final long serialVersionUID = -3541282417099245795L;
   protected User accepter;
 
   /**
@@ -22,6 +25,21 @@ public class RequestImpl extends EventImpl implements Request {
     accepter = null;
   }
 
+  /**
+   * Constructs a RequestImpl object restored from its saved fields.
+   *
+   * @param sequence the sequence number of the request
+   * @param sender   the User who sent the request
+   * @param receiver the recipient of the request
+   * @param content  the content of the request
+   * @param date     the date of the request
+   * @param accepter the User who accepted the request, or null if it has not been accepted yet
+   */
+  public RequestImpl(long sequence, User sender, Object receiver, String content, Date date, User accepter) {
+    super(sequence, sender, receiver, content, date);
+    this.accepter = accepter;
+  }
+
   /**
    * Gets the User who accepted the request.
    * 
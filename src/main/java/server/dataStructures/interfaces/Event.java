@@ -5,7 +5,8 @@ import java.util.Date;
 
 /**
  * The Event interface represents an event in the system.
- * It provides methods to get and set the sender, receiver, content, and date of the event.
+ * It provides methods to get and set the sender, receiver, content, and date of the event,
+ * and to get the sequence number that orders it among all events.
  * The Event interface extends the Serializable and Comparable interfaces.
  */
 public interface Event extends Serializable, Comparable<Event> {
@@ -52,6 +53,14 @@ public interface Event extends Serializable, Comparable<Event> {
    */
   void setContent(String content);
 
+  /**
+   * Gets the sequence number of the event, assigned by the server when the event is created.
+   * Sequence numbers are unique and increase in creation order.
+   *
+   * @return the sequence number of the event
+   */
+  long getSequence();
+
   /**
    * Gets the date of the event.
    *
@@ -0,0 +1,358 @@
+package server.protocols;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+import server.Server;
+import server.dataStructures.interfaces.User;
+import shared.enumerations.ConnectionType;
+import shared.enumerations.Framing;
+import shared.protocols.Frames;
+
+/**
+ * Represents the state of a single non-blocking direct connection.
+ * It decodes frames from the bytes read by the selector thread
+ * and hands them to the server executor, which processes them one at a time in the order they were received
+ * and queues the responses to be written back.
+ * Processing may read from disk, so it never runs on the selector thread, which serves many other sessions.
+ * Sessions start with newline-delimited frames and may switch to length-prefixed frames once negotiated.
+ * Decoding is confined to the selector thread, while writing is synchronized on the session.
+ */
+public class DirectSession {
+  private static final Logger logger = Logger.getLogger(DirectSession.class.getName());
+  private static final String BUSY_RESPONSE = "{\"response\":\"BUSY\"}";
+
+  private final SocketChannel channel;
+  private final SelectionKey key;
+  private final Queue<ByteBuffer> pendingWrites = new ArrayDeque<>();
+  private final Queue<String> pendingFrames = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean processing = new AtomicBoolean();
+  private volatile Framing framing = Framing.LINE;
+  private Framing negotiatedFraming;
+  private volatile User user;
+
+  // Incomplete LINE frame
+  private byte[] partialFrame;
+  private int partialLength;
+
+  // Incomplete LENGTH frame
+  private final ByteBuffer lengthPrefix = ByteBuffer.allocate(Integer.BYTES);
+  private byte[] frameBody;
+  private int frameBodyRead;
+
+  /**
+   * Constructs a new DirectSession for the given channel and selection key.
+   *
+   * @param channel the channel of the client connection
+   * @param key     the selection key of the channel
+   */
+  public DirectSession(SocketChannel channel, SelectionKey key) {
+    this.channel = channel;
+    this.key = key;
+  }
+
+  /**
+   * Returns the socket view of the channel, used to identify the user's connection.
+   *
+   * @return the socket of the session
+   */
+  public Socket getSocket() {
+    return channel.socket();
+  }
+
+  /**
+   * Returns the user logged in on the session.
+   *
+   * @return the user of the session, or null if no user logged in yet
+   */
+  public User getUser() {
+    return user;
+  }
+
+  /**
+   * Sets the user logged in on the session.
+   *
+   * @param user the user that logged in
+   */
+  public void setUser(User user) {
+    this.user = user;
+  }
+
+  /**
+   * Switches the framing of the session.
+   * The switch takes effect after the response to the frame being processed is written,
+   * so that response still uses the framing the client sent its request with.
+   *
+   * @param framing the framing to switch to
+   */
+  public void switchFraming(Framing framing) {
+    this.negotiatedFraming = framing;
+  }
+
+  /**
+   * Reads the available bytes from the channel and processes every complete frame.
+   *
+   * @param readBuffer the buffer, shared by the selector thread, used to read from the channel
+   * @return false if the connection was closed by the client, true otherwise
+   * @throws IOException if an I/O error occurs while reading or writing
+   */
+  public boolean read(ByteBuffer readBuffer) throws IOException {
+    while (true) {
+      readBuffer.clear();
+      int read = channel.read(readBuffer);
+      if (read == -1) {
+        return false;
+      }
+      if (read == 0) {
+        return true;
+      }
+      readBuffer.flip();
+      while (readBuffer.hasRemaining()) {
+        if (framing == Framing.LENGTH) {
+          decodeLengthFrame(readBuffer);
+        } else {
+          decodeLineFrame(readBuffer);
+        }
+      }
+    }
+  }
+
+  /**
+   * Consumes bytes of the buffer up to the end of the current line frame,
+   * processing the frame if it is complete or buffering it otherwise.
+   *
+   * @param buffer the buffer with the bytes read
+   * @throws IOException if a frame exceeds the maximum size or a response cannot be written
+   */
+  private void decodeLineFrame(ByteBuffer buffer) throws IOException {
+    int start = buffer.position();
+    for (int i = start; i < buffer.limit(); i++) {
+      if (buffer.get(i) != '\n') {
+        continue;
+      }
+      buffer.position(i + 1);
+      if (partialLength == 0) {
+        byte[] bytes = new byte[i - start];
+        buffer.get(start, bytes);
+        processFrame(new String(bytes, StandardCharsets.UTF_8));
+      } else {
+        appendPartial(buffer, start, i - start);
+        processFrame(new String(partialFrame, 0, partialLength, StandardCharsets.UTF_8));
+        partialLength = 0;
+      }
+      return;
+    }
+    appendPartial(buffer, start, buffer.limit() - start);
+    buffer.position(buffer.limit());
+  }
+
+  /**
+   * Appends bytes of the buffer to the incomplete line frame.
+   *
+   * @param buffer the buffer with the bytes read
+   * @param offset the index of the first byte to append
+   * @param length the number of bytes to append
+   * @throws IOException if the frame exceeds the maximum size
+   */
+  private void appendPartial(ByteBuffer buffer, int offset, int length) throws IOException {
+    int required = partialLength + length;
+    if (required > Frames.MAX_FRAME_SIZE) {
+      throw new IOException("Frame exceeds " + Frames.MAX_FRAME_SIZE + " bytes!");
+    }
+    if (partialFrame == null || partialFrame.length < required) {
+      byte[] grown = new byte[Math.max(required, partialFrame == null ? 256 : partialFrame.length * 2)];
+      if (partialFrame != null) {
+        System.arraycopy(partialFrame, 0, grown, 0, partialLength);
+      }
+      partialFrame = grown;
+    }
+    buffer.get(offset, partialFrame, partialLength, length);
+    partialLength += length;
+  }
+
+  /**
+   * Consumes bytes of the buffer towards the current length-prefixed frame,
+   * reading the body straight into an array of the exact frame size.
+   *
+   * @param buffer the buffer with the bytes read
+   * @throws IOException if the frame length is invalid or a response cannot be written
+   */
+  private void decodeLengthFrame(ByteBuffer buffer) throws IOException {
+    if (frameBody == null) {
+      while (lengthPrefix.hasRemaining() && buffer.hasRemaining()) {
+        lengthPrefix.put(buffer.get());
+      }
+      if (lengthPrefix.hasRemaining()) {
+        return;
+      }
+      int length = lengthPrefix.getInt(0);
+      lengthPrefix.clear();
+      if (length < 0 || length > Frames.MAX_FRAME_SIZE) {
+        throw new IOException("Invalid frame length " + length + "!");
+      }
+      frameBody = new byte[length];
+      frameBodyRead = 0;
+    }
+    int count = Math.min(frameBody.length - frameBodyRead, buffer.remaining());
+    buffer.get(frameBody, frameBodyRead, count);
+    frameBodyRead += count;
+    if (frameBodyRead < frameBody.length) {
+      return;
+    }
+    String frame = new String(frameBody, StandardCharsets.UTF_8);
+    frameBody = null;
+    processFrame(frame);
+  }
+
+  /**
+   * Queues a complete frame to be processed, scheduling the processing of the session if it is not already running.
+   * Frames beyond the capacity of the session, or that the executor cannot admit, are answered with BUSY.
+   *
+   * @param frame the frame received
+   * @throws IOException if a BUSY response cannot be written
+   */
+  private void processFrame(String frame) throws IOException {
+    if (framing == Framing.LINE && frame.endsWith("\r")) {
+      frame = frame.substring(0, frame.length() - 1);
+    }
+    if (frame.isEmpty()) {
+      return;
+    }
+    if (pendingFrames.size() >= Server.DIRECT_SESSION_QUEUE_CAPACITY) {
+      logger.warning("Frame rejected! Direct session is full!");
+      write(BUSY_RESPONSE);
+      return;
+    }
+    pendingFrames.add(frame);
+    if (!processing.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      Server.getExecutorService().execute(this::processPending);
+    } catch (RejectedExecutionException e) {
+      logger.warning("Frame rejected! " + e.getMessage());
+      processing.set(false);
+      while (pendingFrames.poll() != null) {
+        write(BUSY_RESPONSE);
+      }
+    }
+  }
+
+  /**
+   * Processes the queued frames in order until none is left, writing back their responses.
+   * A frame queued while the last one is finishing is picked up by the same run.
+   */
+  private void processPending() {
+    do {
+      String frame;
+      while ((frame = pendingFrames.poll()) != null) {
+        try {
+          respond(Protocol.processInput(ConnectionType.DIRECT, this, frame));
+        } catch (IOException | CancelledKeyException e) {
+          logger.severe("Error Writing Direct Response! " + e.getMessage());
+          pendingFrames.clear();
+          close();
+        } catch (RuntimeException e) {
+          // A failing frame must not leave the session marked as processing, or its later frames would never run
+          logger.severe("Error Processing Direct Message! " + e.getMessage());
+        }
+      }
+      processing.set(false);
+    } while (!pendingFrames.isEmpty() && processing.compareAndSet(false, true));
+  }
+
+  /**
+   * Queues the response to a frame and applies any negotiated framing.
+   * The framing is switched before the response is written, as the client may use it as soon as the response arrives.
+   *
+   * @param output the response, or null if there is none
+   * @throws IOException if the response cannot be written
+   */
+  private synchronized void respond(String output) throws IOException {
+    ByteBuffer buffer = output != null ? encode(output) : null;
+    if (negotiatedFraming != null) {
+      framing = negotiatedFraming;
+      negotiatedFraming = null;
+    }
+    if (buffer != null) {
+      pendingWrites.add(buffer);
+      flush();
+    }
+  }
+
+  /**
+   * Queues a response frame and tries to write it right away.
+   *
+   * @param output the response to be written
+   * @throws IOException if an I/O error occurs while writing
+   */
+  public synchronized void write(String output) throws IOException {
+    pendingWrites.add(encode(output));
+    flush();
+  }
+
+  /**
+   * Encodes a response frame with the current framing of the session.
+   *
+   * @param output the response to be encoded
+   * @return a buffer with the encoded frame, ready to be written
+   */
+  private ByteBuffer encode(String output) {
+    byte[] bytes = output.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer buffer;
+    if (framing == Framing.LENGTH) {
+      buffer = ByteBuffer.allocate(Integer.BYTES + bytes.length);
+      buffer.putInt(bytes.length).put(bytes).flip();
+    } else {
+      buffer = ByteBuffer.allocate(bytes.length + 1);
+      buffer.put(bytes).put((byte) '\n').flip();
+    }
+    return buffer;
+  }
+
+  /**
+   * Writes as much of the pending responses as the channel accepts,
+   * registering interest in write readiness while anything is left.
+   * When called off the selector thread, the selector is woken up so it picks up the new interest.
+   *
+   * @throws IOException if an I/O error occurs while writing
+   */
+  public synchronized void flush() throws IOException {
+    while (!pendingWrites.isEmpty()) {
+      ByteBuffer buffer = pendingWrites.peek();
+      channel.write(buffer);
+      if (buffer.hasRemaining()) {
+        if (key.interestOps() != (SelectionKey.OP_READ | SelectionKey.OP_WRITE)) {
+          key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+          key.selector().wakeup();
+        }
+        return;
+      }
+      pendingWrites.poll();
+    }
+    key.interestOps(SelectionKey.OP_READ);
+  }
+
+  /**
+   * Closes the session and its channel.
+   */
+  public void close() {
+    key.cancel();
+    try {
+      channel.close();
+    } catch (IOException io) {
+      logger.severe("Error Closing Direct Session! " + io.getMessage());
+    }
+  }
+}
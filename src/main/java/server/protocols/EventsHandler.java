@@ -2,14 +2,14 @@ package server.protocols;
 
 import java.text.SimpleDateFormat;
 import java.util.Collection;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Logger;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import server.Server;
 import server.dataStructures.SharedObject;
 import server.dataStructures.classes.MessageImpl;
 import server.dataStructures.classes.RequestImpl;
@@ -18,18 +18,19 @@ import server.dataStructures.interfaces.Message;
 import server.dataStructures.interfaces.Request;
 import server.dataStructures.interfaces.User;
 import server.threads.AcceptRequestThread;
+import server.threads.BoundedExecutor;
 import shared.enumerations.ConnectionType;
 
 public class EventsHandler {
   private static final Logger logger = Logger.getLogger(EventsHandler.class.getName());
-  private static final ExecutorService executorService = Executors.newFixedThreadPool(50);
+  private static final BoundedExecutor executorService = new BoundedExecutor("Events executor", Server.EXECUTION_MODE, Server.EVENTS_EXECUTOR_THREADS, Server.EVENTS_EXECUTOR_CAPACITY);
 
   /**
-   * Returns the ExecutorService used by the EventsHandler.
+   * Returns the executor used by the EventsHandler.
    *
-   * @return the ExecutorService used by the EventsHandler
+   * @return the executor used by the EventsHandler
    */
-  public static ExecutorService getExecutorService() {
+  public static BoundedExecutor getExecutorService() {
     return executorService;
   }
 
@@ -57,6 +58,7 @@ public class EventsHandler {
       logger.severe("Invalid receiver type!");
     }
     json.put("content", event.getContent());
+    json.put("sequence", event.getSequence());
     SimpleDateFormat sdf = new SimpleDateFormat("dd-MM-yyyy HH:mm");
     json.put("date", sdf.format(event.getDate()));
     if (event instanceof Message) {
@@ -189,17 +191,11 @@ public class EventsHandler {
         SharedObject.addUserEvent((User) message.getReceiver(), message);
       } else if (Receiver instanceof String) {
         String receiverString = (String) Receiver;
-        if (receiverString.equals("broadcast")) {
-          Collection<User> users = SharedObject.getUsers();
-          for (User user : users) {
-            SharedObject.addUserEvent(user, message);
-          }
+        if (receiverString.equals(SharedObject.BROADCAST_LOG)) {
+          SharedObject.addSharedEvent(SharedObject.BROADCAST_LOG, message);
         } else if (receiverString.matches(
             "^(22[4-9]|23[0-9]|2[4-9][0-9]|[3-9][0-9]{2}|[12][0-9]{3})\\.(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\.(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\.(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)$")) {
-          Collection<User> users = SharedObject.getUsersFromGroup(receiverString);
-          for (User user : users) {
-            SharedObject.addUserEvent(user, message);
-          }
+          SharedObject.addSharedEvent(receiverString, message);
         } else {
           User user = SharedObject.getUser(receiverString);
           if (user != null) {
@@ -221,27 +217,31 @@ public class EventsHandler {
    * @param connectionType The type of connection (DIRECT or INDIRECT).
    * @param json The JSON object containing the request data.
    * @param socketPacket The socket packet associated with the request.
-   * @return The response string.
+   * @return null, or a BUSY response if the request negotiation could not be admitted.
+   * @throws JSONException If there is an error creating the response.
    */
-  public static String receiveRequest(ConnectionType connectionType, JSONObject json, Object socketPacket) {
+  public static String receiveRequest(ConnectionType connectionType, JSONObject json, Object socketPacket) throws JSONException {
     Request request = requestFromJson(json);
     if (request != null) {
+      // Admit the negotiation before any fan-out work, so an overloaded server rejects the request as a whole
+      try {
+        executorService.execute(new AcceptRequestThread(connectionType, request));
+      } catch (RejectedExecutionException e) {
+        logger.warning("Request rejected! " + e.getMessage());
+        JSONObject response = new JSONObject();
+        response.put("response", "BUSY");
+        return response.toString();
+      }
       Object Receiver = request.getReceiver();
       if (Receiver instanceof User) {
         SharedObject.addUserEvent((User) request.getReceiver(), request);
       } else if (Receiver instanceof String) {
         String receiverString = (String) Receiver;
-        if (receiverString.equals("broadcast")) {
-          Collection<User> users = SharedObject.getUsers();
-          for (User user : users) {
-            SharedObject.addUserEvent(user, request);
-          }
+        if (receiverString.equals(SharedObject.BROADCAST_LOG)) {
+          SharedObject.addSharedEvent(SharedObject.BROADCAST_LOG, request);
         } else if (receiverString.matches(
             "^(22[4-9]|23[0-9]|2[4-9][0-9]|[3-9][0-9]{2}|[12][0-9]{3})\\.(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\.(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\.(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)$")) {
-          Collection<User> users = SharedObject.getUsersFromGroup(receiverString);
-          for (User user : users) {
-            SharedObject.addUserEvent(user, request);
-          }
+          SharedObject.addSharedEvent(receiverString, request);
         } else {
           User user = SharedObject.getUser(receiverString);
           if (user != null) {
@@ -253,7 +253,6 @@ public class EventsHandler {
       if (connectionType == ConnectionType.DIRECT) {
         SharedObject.addEventToDeliver(request);
       }
-      executorService.execute(new AcceptRequestThread(connectionType, request));
     }
     return null;
   }
@@ -6,6 +6,7 @@ import java.util.logging.Logger;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import server.Server;
 import server.dataStructures.SharedObject;
 import server.dataStructures.interfaces.User;
 import shared.enumerations.ConnectionType;
@@ -15,11 +16,32 @@ import shared.enumerations.ConnectionType;
  */
 public class Protocol {
   private static final Logger logger = Logger.getLogger(Protocol.class.getName());
+  private static final RateLimiter rateLimiter = new RateLimiter(Server.RATE_LIMITS, Server.RATE_LIMIT_BURSTS);
+
+  /**
+   * Checks the sender's rate limit for commands that fan out to other users.
+   *
+   * @param json The JSON object of the command.
+   * @return true if the command may proceed, false if the sender exceeded its rate limit.
+   * @throws JSONException If there is an error accessing the JSON object.
+   */
+  private static boolean withinRateLimit(JSONObject json) throws JSONException {
+    if (!json.has("from")) {
+      return true;
+    }
+    User sender = SharedObject.getUser(json.getString("from"));
+    if (sender == null || rateLimiter.tryAcquire(sender)) {
+      return true;
+    }
+    logger.warning("Rate limit exceeded by " + sender.getUsername() + "!");
+    return false;
+  }
+
   /**
    * Processes the input based on the given connection type, socket packet, and input string.
    * 
    * @param connectionType The type of connection (DIRECT or INDIRECT).
-   * @param socketPacket The socket packet object.
+   * @param socketPacket The direct session for DIRECT connections, or the sender's address otherwise.
    * @param input The input string to be processed.
    * @return The response as a JSON string.
    */
@@ -33,7 +55,6 @@ public class Protocol {
       }
 
       // Register the user's socket if it is not already registered
-      Socket socket;
       if (connectionType == ConnectionType.DIRECT) {
         if (json.has("username") || json.has("from")) {
           User User = null;
@@ -44,8 +65,8 @@ public class Protocol {
             User = SharedObject.getUser(json.getString("from"));
           }
           if (User != null) {
-            if (socketPacket instanceof Socket) {
-              socket = (Socket) socketPacket;
+            if (socketPacket instanceof DirectSession) {
+              Socket socket = ((DirectSession) socketPacket).getSocket();
               if (socket != SharedObject.getUserSocket(User)) {
                 SharedObject.addUserSocket(User, socket);
               }
@@ -54,29 +75,39 @@ public class Protocol {
         }
       }
 
+      // Reject fan-out commands from senders over their rate limit before doing any work
+      String command = json.getString("command");
+      if ((command.equals("message") || command.equals("request")) && !withinRateLimit(json)) {
+        response.put("response", "RATE_LIMITED");
+        return response.toString();
+      }
+
       // Process the input based on the command
-      switch (json.getString("command")) {
+      switch (command) {
         case "register":
           if (connectionType != ConnectionType.DIRECT) {
             return null;
           }
-          socket = (Socket) socketPacket;
           return ReceiverHandler.register(json, socketPacket);
         case "login":
           if (connectionType != ConnectionType.DIRECT) {
             return null;
           }
-          socket = (Socket) socketPacket;
           return ReceiverHandler.login(json, socketPacket);
         case "message":
           EventsHandler.receiveMessage(connectionType, json);
           return null;
         case "request":
-          EventsHandler.receiveRequest(connectionType, json, socketPacket);
-          return null;
+          return EventsHandler.receiveRequest(connectionType, json, socketPacket);
         case "joinGroup":
           ReceiverHandler.joinGroup(json);
           return null;
+        case "ack":
+          if (connectionType != ConnectionType.DIRECT) {
+            return null;
+          }
+          ReceiverHandler.acknowledge(json, (DirectSession) socketPacket);
+          return null;
         default:
           logger.severe("Invalid command received! " + input);
           return null;
@@ -0,0 +1,151 @@
+package server.protocols;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.logging.Logger;
+
+import server.Server;
+import shared.enumerations.Framing;
+import shared.protocols.Frames;
+
+/**
+ * Represents a long-lived connection used by the server to push data to a client.
+ * The connection is opened to the client's port and reused for many pushes,
+ * one exchange at a time, while it is lent out by its PushChannelPool.
+ * A request that a person has to answer gets a channel of its own, closed after the answer.
+ */
+public class PushChannel {
+  private static final Logger logger = Logger.getLogger(PushChannel.class.getName());
+
+  private final Socket socket;
+  private final Framing framing;
+  private final DataInputStream in;
+  private final DataOutputStream out;
+  private long lastUsed;
+
+  /**
+   * Opens a new PushChannel to the given client address.
+   *
+   * @param address the address of the client
+   * @param framing the framing negotiated with the client
+   * @throws IOException if the connection cannot be established
+   */
+  public PushChannel(InetAddress address, Framing framing) throws IOException {
+    this.socket = new Socket();
+    try {
+      this.socket.connect(new InetSocketAddress(address, Server.USER_PORT), Server.PUSH_CONNECT_TIMEOUT);
+    } catch (IOException io) {
+      this.socket.close();
+      throw io;
+    }
+    this.socket.setTcpNoDelay(true);
+    this.framing = framing;
+    this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    this.lastUsed = System.currentTimeMillis();
+  }
+
+  /**
+   * Returns the address of the client this channel is connected to.
+   *
+   * @return the address of the client
+   */
+  public InetAddress getAddress() {
+    return socket.getInetAddress();
+  }
+
+  /**
+   * Checks whether the channel can still be used.
+   *
+   * @return true if the connection is open, false otherwise
+   */
+  public boolean isOpen() {
+    return !socket.isClosed() && socket.isConnected() && !socket.isInputShutdown() && !socket.isOutputShutdown();
+  }
+
+  /**
+   * Returns the time this channel was last used.
+   *
+   * @return the time of the last exchange, in milliseconds since the epoch
+   */
+  public long getLastUsed() {
+    return lastUsed;
+  }
+
+  /**
+   * Checks whether an idle channel is still healthy.
+   * The client never writes on its own, so a pending end of stream means it closed the connection,
+   * and any pending data means the channel is out of sync with its exchanges.
+   *
+   * @return true if the connection is open and has nothing to read, false otherwise
+   */
+  public boolean isHealthy() {
+    if (!isOpen()) {
+      return false;
+    }
+    try {
+      socket.setSoTimeout(1);
+      in.read();
+      return false;
+    } catch (SocketTimeoutException timeout) {
+      return true;
+    } catch (IOException io) {
+      return false;
+    } finally {
+      try {
+        socket.setSoTimeout(0);
+      } catch (IOException ignored) {}
+    }
+  }
+
+  /**
+   * Sends a frame to the client.
+   *
+   * @param something the frame to be sent
+   * @throws IOException if the frame could not be written
+   */
+  public synchronized void send(String something) throws IOException {
+    lastUsed = System.currentTimeMillis();
+    Frames.write(out, framing, something);
+  }
+
+  /**
+   * Sends a frame to the client and waits for its response frame, for at most PUSH_ANSWER_TIMEOUT.
+   *
+   * @param something the frame to be sent
+   * @return the response of the client
+   * @throws SocketTimeoutException if the client does not respond in time
+   * @throws IOException if the frame could not be written or the client closed the connection
+   */
+  public synchronized String sendAndReceive(String something) throws IOException {
+    send(something);
+    socket.setSoTimeout(Server.PUSH_ANSWER_TIMEOUT);
+    try {
+      String response = Frames.read(in, framing);
+      if (response == null) {
+        throw new IOException("Push channel closed by the client!");
+      }
+      return response;
+    } finally {
+      socket.setSoTimeout(0);
+    }
+  }
+
+  /**
+   * Closes the channel.
+   */
+  public void close() {
+    try {
+      socket.close();
+    } catch (IOException io) {
+      logger.severe("Error Closing Push Channel! " + io.getMessage());
+    }
+  }
+}
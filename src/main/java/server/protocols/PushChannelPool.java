@@ -0,0 +1,173 @@
+package server.protocols;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import server.Server;
+import shared.enumerations.Framing;
+
+/**
+ * Represents a bounded pool of push channels to a single client.
+ * Channels are lent out for one exchange at a time and returned afterwards,
+ * idle channels are health checked before being lent again and closed once idle for too long,
+ * and channels that fail are evicted so a new one can take their place.
+ */
+public class PushChannelPool {
+  private final InetAddress address;
+  private final Framing framing;
+  private final Deque<PushChannel> idleChannels = new ArrayDeque<>();
+  private int openChannels;
+  private boolean closed;
+
+  /**
+   * Constructs a new, empty PushChannelPool for the given client address.
+   *
+   * @param address the address of the client
+   * @param framing the framing negotiated with the client
+   */
+  public PushChannelPool(InetAddress address, Framing framing) {
+    this.address = address;
+    this.framing = framing;
+  }
+
+  /**
+   * Returns the address of the client this pool connects to.
+   *
+   * @return the address of the client
+   */
+  public InetAddress getAddress() {
+    return address;
+  }
+
+  /**
+   * Lends a channel, reusing the most recently used healthy idle channel,
+   * opening a new one while the pool is below its size, or waiting for one to be returned.
+   *
+   * @return a channel to be used exclusively until it is released or evicted
+   * @throws IOException if the pool is closed, a channel cannot be opened or none is returned in time
+   */
+  public PushChannel acquire() throws IOException {
+    long deadline = System.currentTimeMillis() + Server.PUSH_POOL_ACQUIRE_TIMEOUT;
+    while (true) {
+      PushChannel channel = takeIdleOrReserve(deadline);
+      if (channel == null) {
+        break;
+      }
+      // The health check waits on the socket, so it is done without holding the pool
+      if (System.currentTimeMillis() - channel.getLastUsed() < Server.PUSH_POOL_IDLE_CHECK || channel.isHealthy()) {
+        return channel;
+      }
+      evict(channel);
+    }
+    try {
+      return new PushChannel(address, framing);
+    } catch (IOException io) {
+      synchronized (this) {
+        openChannels--;
+        notifyAll();
+      }
+      throw io;
+    }
+  }
+
+  /**
+   * Takes the most recently used idle channel, or reserves room for a new channel while the pool is below its size,
+   * waiting for a channel to be returned otherwise.
+   *
+   * @param deadline the time by which a channel must be available, in milliseconds since the epoch
+   * @return an idle channel, or null if room for a new channel was reserved
+   * @throws IOException if the pool is closed or no channel is available by the deadline
+   */
+  private synchronized PushChannel takeIdleOrReserve(long deadline) throws IOException {
+    while (true) {
+      if (closed) {
+        throw new IOException("Push channel pool is closed!");
+      }
+      PushChannel channel = idleChannels.pollFirst();
+      if (channel != null) {
+        return channel;
+      }
+      if (openChannels < Server.PUSH_POOL_SIZE) {
+        openChannels++;
+        return null;
+      }
+      long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0) {
+        throw new IOException("No push channel available to " + address + "!");
+      }
+      try {
+        wait(remaining);
+      } catch (InterruptedException interrupted) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for a push channel!");
+      }
+    }
+  }
+
+  /**
+   * Returns a channel to the pool after a successful exchange.
+   *
+   * @param channel the channel to be returned
+   */
+  public synchronized void release(PushChannel channel) {
+    if (closed) {
+      channel.close();
+      openChannels--;
+      return;
+    }
+    idleChannels.addFirst(channel);
+    notifyAll();
+  }
+
+  /**
+   * Closes and removes a channel from the pool after an I/O error.
+   *
+   * @param channel the channel to be evicted
+   */
+  public synchronized void evict(PushChannel channel) {
+    channel.close();
+    openChannels--;
+    notifyAll();
+  }
+
+  /**
+   * Closes the channels that have been idle for longer than a timeout, so a quiet client does not keep them open.
+   * Idle channels are kept most recently used first, so the expired ones are at the end.
+   *
+   * @param idleTimeout the time a channel may stay idle, in milliseconds
+   */
+  public void closeIdle(long idleTimeout) {
+    List<PushChannel> expired = new ArrayList<>();
+    synchronized (this) {
+      long now = System.currentTimeMillis();
+      while (!idleChannels.isEmpty() && now - idleChannels.peekLast().getLastUsed() >= idleTimeout) {
+        expired.add(idleChannels.pollLast());
+        openChannels--;
+      }
+      if (!expired.isEmpty()) {
+        notifyAll();
+      }
+    }
+    for (PushChannel channel : expired) {
+      channel.close();
+    }
+  }
+
+  /**
+   * Closes the pool and its idle channels.
+   * Channels currently lent out are closed when they are released.
+   */
+  public synchronized void close() {
+    closed = true;
+    for (PushChannel channel : idleChannels) {
+      channel.close();
+      openChannels--;
+    }
+    idleChannels.clear();
+    notifyAll();
+  }
+}
@@ -0,0 +1,69 @@
+package server.protocols;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import server.dataStructures.interfaces.User;
+import shared.enumerations.Role;
+
+/**
+ * The RateLimiter class limits how many commands each user may send, with a token bucket per username.
+ * Each bucket refills at a rate and holds up to a burst of tokens that depend on the user's role.
+ * A bucket is kept as the single time at which it will be full again, updated with compare-and-set,
+ * so checking a bucket never takes a lock.
+ */
+public class RateLimiter {
+  private final long[] refillIntervals;
+  private final long[] burstWindows;
+  private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs a new RateLimiter.
+   *
+   * @param ratesPerSecond the tokens refilled per second, indexed by role index
+   * @param bursts         the tokens each bucket holds when full, indexed by role index
+   * @throws IllegalArgumentException if there is not a positive rate and burst for every role
+   */
+  public RateLimiter(int[] ratesPerSecond, int[] bursts) {
+    if (ratesPerSecond.length != Role.values().length || bursts.length != Role.values().length) {
+      throw new IllegalArgumentException("There must be a rate and a burst for every role!");
+    }
+    refillIntervals = new long[ratesPerSecond.length];
+    burstWindows = new long[bursts.length];
+    for (int i = 0; i < ratesPerSecond.length; i++) {
+      if (ratesPerSecond[i] <= 0 || bursts[i] <= 0) {
+        throw new IllegalArgumentException("Rates and bursts must be positive!");
+      }
+      refillIntervals[i] = 1_000_000_000L / ratesPerSecond[i];
+      burstWindows[i] = refillIntervals[i] * bursts[i];
+    }
+  }
+
+  /**
+   * Takes a token from the user's bucket.
+   *
+   * @param user the user sending a command
+   * @return true if the user had a token left, false if the command must be rejected
+   */
+  public boolean tryAcquire(User user) {
+    int roleIndex = Role.getIndex(user.getRole());
+    long refillInterval = refillIntervals[roleIndex];
+    long burstWindow = burstWindows[roleIndex];
+    AtomicLong fullAt = buckets.get(user.getUsername());
+    if (fullAt == null) {
+      fullAt = buckets.computeIfAbsent(user.getUsername(), username -> new AtomicLong(Long.MIN_VALUE));
+    }
+    while (true) {
+      long now = System.nanoTime();
+      long current = fullAt.get();
+      long next = (current == Long.MIN_VALUE || current - now < 0 ? now : current) + refillInterval;
+      if (next - now > burstWindow) {
+        return false;
+      }
+      if (fullAt.compareAndSet(current, next)) {
+        return true;
+      }
+    }
+  }
+}
@@ -1,21 +1,28 @@
 package server.protocols;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
 import java.net.InetAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Logger;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import server.Server;
 import server.dataStructures.SharedObject;
 import server.dataStructures.classes.UserImpl;
+import server.dataStructures.interfaces.Event;
 import server.dataStructures.interfaces.User;
+import server.threads.DeliveryThread;
 import server.threads.MessageHistoryThread;
+import shared.enumerations.Framing;
 import shared.enumerations.Role;
 
 /**
@@ -24,12 +31,38 @@ import shared.enumerations.Role;
  */
 public class ReceiverHandler {
   private static final Logger logger = Logger.getLogger(ReceiverHandler.class.getName());
-  
+  private static final Map<User, PushChannelPool> pushChannelPools = new ConcurrentHashMap<>();
+  private static final Map<User, Framing> userFramings = new ConcurrentHashMap<>();
+
+  /**
+   * Negotiates the framing requested by the client, if any, for its direct session and push channels.
+   * The chosen framing is added to the response and applied once the response is written.
+   *
+   * @param json     The JSON object of the authentication command.
+   * @param user     The authenticated user.
+   * @param session  The direct session of the user.
+   * @param response The response to the authentication command.
+   * @throws JSONException If there is an error in accessing the JSON objects.
+   */
+  private static void negotiateFraming(JSONObject json, User user, DirectSession session, JSONObject response) throws JSONException {
+    Framing framing = Framing.LINE;
+    if (json.has("framing")) {
+      try {
+        framing = Framing.valueOf(json.getString("framing").toUpperCase());
+      } catch (IllegalArgumentException e) {
+        logger.info("Attempted to negotiate an unknown framing!");
+      }
+    }
+    userFramings.put(user, framing);
+    session.switchFraming(framing);
+    response.put("framing", framing.toString());
+  }
+
   /**
    * Registers a user with the provided JSON object and socket packet.
    * 
    * @param json The JSON object containing user information.
-   * @param socketPacket The socket packet associated with the user.
+   * @param socketPacket The direct session associated with the user.
    * @return A response message indicating the success or failure of the registration.
    * @throws JSONException If there is an error in parsing the JSON object.
    */
@@ -44,10 +77,11 @@ public class ReceiverHandler {
       Role roleEnum = Role.valueOf(json.getString("role").toUpperCase());
       User user = new UserImpl(json.getString("username"), json.getString("name"), json.getString("password"), roleEnum);
       SharedObject.addUser(user);
-      Socket socket = (Socket) socketPacket;
-      SharedObject.addUserSocket(user, socket);
+      DirectSession session = (DirectSession) socketPacket;
+      SharedObject.addUserSocket(user, session.getSocket());
       JSONObject response = new JSONObject();
       response.put("response", "OK");
+      negotiateFraming(json, user, session, response);
       return response.toString();
     } catch (IllegalArgumentException e) {
       JSONObject response = new JSONObject();
@@ -64,11 +98,11 @@ public class ReceiverHandler {
    * and a socket packet object.
    * It checks if the username is valid and if the password matches.
    * If the login is successful, it adds the user's socket to the shared object
-   * and starts a new thread for message history.
+   * and starts a new thread for the message history the user has not acknowledged yet.
    * It returns a JSON string response indicating the result of the login process.
    *
    * @param json The JSON object containing the username and password.
-   * @param socketPacket The socket packet object.
+   * @param socketPacket The direct session of the user.
    * @return A JSON string response indicating the result of the login process.
    * @throws JSONException If there is an error accessing the JSON object.
    */
@@ -85,47 +119,161 @@ public class ReceiverHandler {
       response.put("response", "Invalid password!");
       return response.toString();
     }
-    Socket socket = (Socket) socketPacket;
-    SharedObject.addUserSocket(user, socket);
-    new Thread(new MessageHistoryThread(user)).start();
+    DirectSession session = (DirectSession) socketPacket;
+    SharedObject.addUserSocket(user, session.getSocket());
+    session.setUser(user);
+    long since = SharedObject.getAckedSequence(user);
+    try {
+      Server.getExecutorService().execute(new MessageHistoryThread(user, since));
+    } catch (RejectedExecutionException e) {
+      logger.warning("Login rejected! " + e.getMessage());
+      disconnect(user);
+      response.put("response", "BUSY");
+      return response.toString();
+    }
     response.put("response", "OK");
+    negotiateFraming(json, user, session, response);
+    closePushChannels(user);
+    List<Event> deadLetters = SharedObject.replayDeadLetters(user, since);
+    if (!deadLetters.isEmpty()) {
+      logger.info("Replaying " + deadLetters.size() + " undelivered events to " + user.getUsername());
+    }
+    for (Event event : deadLetters) {
+      DeliveryThread.enqueue(user, event);
+    }
+    DeliveryThread.resume(user, since);
     return response.toString();
   }
 
   /**
-   * Sends a message to the specified user.
+   * Represents an exchange performed over a push channel.
+   */
+  private interface PushExchange {
+    String exchange(PushChannel channel) throws IOException;
+  }
+
+  /**
+   * Returns the push channel pool of the specified user, creating a new one if there is none
+   * or if the current one points to an address the user is no longer connected from.
+   *
+   * @param user the user to get the push channel pool of
+   * @return the push channel pool of the user
+   * @throws IOException if the user is not connected
+   */
+  private static PushChannelPool getPushChannelPool(User user) throws IOException {
+    Socket socket = SharedObject.getUserSocket(user);
+    if (socket == null) {
+      throw new IOException("User " + user.getUsername() + " is not connected!");
+    }
+    synchronized (user) {
+      PushChannelPool pool = pushChannelPools.get(user);
+      if (pool != null && pool.getAddress().equals(socket.getInetAddress())) {
+        return pool;
+      }
+      if (pool != null) {
+        pool.close();
+      }
+      pool = new PushChannelPool(socket.getInetAddress(), userFramings.getOrDefault(user, Framing.LINE));
+      pushChannelPools.put(user, pool);
+      return pool;
+    }
+  }
+
+  /**
+   * Closes and forgets the push channel pool of the specified user, if any.
+   *
+   * @param user the user whose push channels are to be closed
+   */
+  public static void closePushChannels(User user) {
+    PushChannelPool pool = pushChannelPools.remove(user);
+    if (pool != null) {
+      pool.close();
+    }
+  }
+
+  /**
+   * Forgets the socket of a user that is no longer reachable and closes the user's push channels.
+   *
+   * @param user the user who disconnected
+   */
+  public static void disconnect(User user) {
+    SharedObject.removeUserSocket(user);
+    closePushChannels(user);
+  }
+
+  /**
+   * Closes the push channels that have been idle for longer than PUSH_POOL_IDLE_TIMEOUT, in every user's pool.
+   */
+  public static void closeIdlePushChannels() {
+    for (PushChannelPool pool : pushChannelPools.values()) {
+      pool.closeIdle(Server.PUSH_POOL_IDLE_TIMEOUT);
+    }
+  }
+
+  /**
+   * Performs an exchange over a pooled push channel of the specified user.
+   * A channel that fails is evicted and the exchange is performed once more over another one.
+   *
+   * @param user     the user to exchange with
+   * @param exchange the exchange to perform
+   * @return the result of the exchange
+   * @throws IOException if an I/O error occurs on both attempts
+   */
+  private static String exchange(User user, PushExchange exchange) throws IOException {
+    PushChannelPool pool = getPushChannelPool(user);
+    for (int attempt = 1; ; attempt++) {
+      PushChannel channel = pool.acquire();
+      try {
+        String result = exchange.exchange(channel);
+        pool.release(channel);
+        return result;
+      } catch (IOException io) {
+        pool.evict(channel);
+        if (attempt == 2) {
+          throw io;
+        }
+      }
+    }
+  }
+
+  /**
+   * Sends a message to the specified user over one of the user's pooled push channels.
    *
    * @param user     the user to send the message to
    * @param something the message to be sent
    * @throws IOException if an I/O error occurs while sending the message
    */
   public static void sendSomething(User user, String something) throws IOException {
-    Socket socket = SharedObject.getUserSocket(user);
-    Socket newSocket = new Socket(socket.getInetAddress(), Server.USER_PORT);
-    PrintWriter out = new PrintWriter(newSocket.getOutputStream(), true);
-    out.println(something);
-    out.close();
-    newSocket.close();
+    exchange(user, channel -> {
+      channel.send(something);
+      return null;
+    });
   }
 
   /**
-    * Sends a request to the server and receives a response.
+    * Sends a request to the specified user and receives a response.
+    * The answer is given by a person, so the exchange uses a channel of its own instead of holding one of the pooled
+    * channels the user's pushes go through, and it is not retried, as the request may already be on screen.
     * 
     * @param user the user making the request
     * @param something the request to be sent
-    * @return the response received from the server
+    * @return the response received from the user, or null if the user did not answer in time
     * @throws IOException if an I/O error occurs while sending or receiving data
     */
   public static String sendAndReceiveSomething(User user, String something) throws IOException {
     Socket socket = SharedObject.getUserSocket(user);
-    Socket newSocket = new Socket(socket.getInetAddress(), Server.USER_PORT);
-    PrintWriter out = new PrintWriter(newSocket.getOutputStream(), true);
-    BufferedReader in = new BufferedReader(new InputStreamReader(newSocket.getInputStream()));
-    out.println(something);
-    String response = in.readLine();
-    out.close();
-    newSocket.close();
-    return response;
+    if (socket == null) {
+      throw new IOException("User " + user.getUsername() + " is not connected!");
+    }
+    PushChannel channel = new PushChannel(socket.getInetAddress(), userFramings.getOrDefault(user, Framing.LINE));
+    try {
+      return channel.sendAndReceive(something);
+    } catch (SocketTimeoutException timeout) {
+      logger.warning(user.getUsername() + " did not answer the request in time!");
+      return null;
+    } finally {
+      channel.close();
+    }
   }
 
   /**
@@ -154,9 +302,38 @@ public class ReceiverHandler {
       return null;
     }
     try {
-      SharedObject.getMulticastSocket().joinGroup(InetAddress.getByName(json.getString("group")));
+      SharedObject.joinMulticastGroup(InetAddress.getByName(json.getString("group")));
     } catch (IOException io) {}
     SharedObject.addUserToGroup(json.getString("group"), user);
     return null;
   }
+
+  /**
+   * Records the events a user's client has processed.
+   * Acknowledgements are sent in batches, listing the sequence number of every event processed since the last one,
+   * and are recorded for the user logged in on the session they arrive on.
+   *
+   * @param json The JSON object containing the sequence numbers.
+   * @param session The direct session the acknowledgement arrived on.
+   * @return always returns null
+   * @throws JSONException If there is an error accessing the JSON object.
+   */
+  public static String acknowledge(JSONObject json, DirectSession session) throws JSONException {
+    if (!json.has("sequences")) {
+      logger.info("Attempted to acknowledge without specifying the sequences!");
+      return null;
+    }
+    User user = session.getUser();
+    if (user == null) {
+      logger.info("Attempted to acknowledge without logging in!");
+      return null;
+    }
+    JSONArray array = json.getJSONArray("sequences");
+    List<Long> sequences = new ArrayList<>(array.length());
+    for (int i = 0; i < array.length(); i++) {
+      sequences.add(array.getLong(i));
+    }
+    SharedObject.acknowledge(user, sequences);
+    return null;
+  }
 }
@@ -1,8 +1,10 @@
 package server.threads;
 
 import java.io.IOException;
-import java.net.DatagramPacket;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
@@ -74,7 +76,6 @@ public class AcceptRequestThread implements Runnable {
       }
 
       // Send the request answer to the receiver
-      DatagramPacket responsePacket;
       User from = request.getSender();
       String response;
       JSONObject jsonResponse;
@@ -90,9 +91,9 @@ public class AcceptRequestThread implements Runnable {
           }
           jsonResponse = new JSONObject(response);
           if (jsonResponse.getString("response").equals("YES")) {
-            request.setAccepter(to);
-            ReceiverHandler.sendSomething(from, EventsHandler.eventToJson(request).toString());
-            ReceiverHandler.sendSomething(to, EventsHandler.eventToJson(request).toString());
+            SharedObject.setRequestAccepter(request, to);
+            DeliveryThread.enqueue(from, request);
+            DeliveryThread.enqueue(to, request);
           }
           break;
 
@@ -123,14 +124,14 @@ public class AcceptRequestThread implements Runnable {
             jsonResponse = new JSONObject(response);
             if (jsonResponse.getString("response").equals("YES")) {
               logger.info(user.getUsername() + " accepted requestAnswer!");
-              request.setAccepter(user);
+              SharedObject.setRequestAccepter(request, user);
               String eventJson = EventsHandler.eventToJson(request).toString();
               if (eventJson == null) {
                 logger.severe("Error while creating JSON object!");
                 return;
               }
-              responsePacket = new DatagramPacket(eventJson.getBytes(), eventJson.getBytes().length, InetAddress.getByName(group), Server.MULTICAST_PORT);
-              SharedObject.getMulticastSocket().send(responsePacket);
+              SharedObject.getMulticastChannel().send(ByteBuffer.wrap(eventJson.getBytes(StandardCharsets.UTF_8)),
+                  new InetSocketAddress(InetAddress.getByName(group), Server.MULTICAST_PORT));
               logger.info("Sent requestAnswer to " + group);
               break;
             } else {
@@ -159,10 +160,10 @@ public class AcceptRequestThread implements Runnable {
             }
             jsonResponse = new JSONObject(response);
             if (jsonResponse.getString("response").equals("YES")) {
-              request.setAccepter(user);
+              SharedObject.setRequestAccepter(request, user);
               String eventJson = EventsHandler.eventToJson(request).toString();
-              responsePacket = new DatagramPacket(eventJson.getBytes(), eventJson.getBytes().length, InetAddress.getByName(Server.BROADCAST_ADDRESS), Server.USER_PORT);
-              SharedObject.getBroadcastSocket().send(responsePacket);
+              SharedObject.getBroadcastChannel().send(ByteBuffer.wrap(eventJson.getBytes(StandardCharsets.UTF_8)),
+                  new InetSocketAddress(InetAddress.getByName(Server.BROADCAST_ADDRESS), Server.USER_PORT));
               break;
             }
           }
@@ -0,0 +1,104 @@
+package server.threads;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import shared.enumerations.ExecutionMode;
+
+/**
+ * The BoundedExecutor class runs tasks with admission control.
+ * At most a fixed number of tasks may be in flight, running or waiting to run,
+ * and any task submitted beyond that is rejected right away instead of piling up in memory.
+ * On platform threads only some of the admitted tasks run at once and the rest wait in the queue,
+ * while on virtual threads every admitted task runs at once.
+ */
+public class BoundedExecutor {
+  private final String name;
+  private final ExecutorService executorService;
+  private final Semaphore permits;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger running = new AtomicInteger();
+  private final AtomicLong rejected = new AtomicLong();
+
+  /**
+   * Constructs a new BoundedExecutor.
+   *
+   * @param name          the name of the executor, used in rejection messages
+   * @param executionMode how the tasks are run
+   * @param threads       the number of threads that run tasks when on platform threads
+   * @param capacity      the maximum number of tasks in flight
+   */
+  public BoundedExecutor(String name, ExecutionMode executionMode, int threads, int capacity) {
+    this.name = name;
+    this.executorService = executionMode.newExecutorService(threads);
+    this.permits = new Semaphore(capacity);
+  }
+
+  /**
+   * Admits a task if there is room for it.
+   *
+   * @param task the task to run
+   * @throws RejectedExecutionException if the executor is full or shut down
+   */
+  public void execute(Runnable task) {
+    if (!permits.tryAcquire()) {
+      rejected.incrementAndGet();
+      throw new RejectedExecutionException(name + " is full!");
+    }
+    inFlight.incrementAndGet();
+    try {
+      executorService.execute(() -> {
+        running.incrementAndGet();
+        try {
+          task.run();
+        } finally {
+          running.decrementAndGet();
+          inFlight.decrementAndGet();
+          permits.release();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      inFlight.decrementAndGet();
+      permits.release();
+      rejected.incrementAndGet();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the number of admitted tasks waiting for a thread.
+   *
+   * @return the queue depth
+   */
+  public int getQueued() {
+    return Math.max(0, inFlight.get() - running.get());
+  }
+
+  /**
+   * Returns the number of tasks currently running.
+   *
+   * @return the number of running tasks
+   */
+  public int getRunning() {
+    return running.get();
+  }
+
+  /**
+   * Returns the number of tasks rejected since the executor was created.
+   *
+   * @return the number of rejected tasks
+   */
+  public long getRejected() {
+    return rejected.get();
+  }
+
+  /**
+   * Stops admitting tasks, letting the admitted ones finish.
+   */
+  public void shutdown() {
+    executorService.shutdown();
+  }
+}
@@ -2,10 +2,15 @@ package server.threads;
 
 import java.util.logging.Logger;
 
+import server.Server;
 import server.dataStructures.SharedObject;
 
 /**
  * This class represents a thread responsible for persisting data at regular intervals.
+ * Every mutation is already recorded in the write-ahead log as it happens,
+ * so a save only checkpoints the data and lets the log segments it covers be discarded.
+ * Only the data changed since the last save is written, and nothing at all while the server is idle.
+ * After each save, the histories that went unused for a while are evicted from memory.
  */
 public class DataPersistenceThread implements Runnable {
 
@@ -19,9 +24,11 @@ public class DataPersistenceThread implements Runnable {
   public void run() {
     while (true) {
       try {
-        Thread.sleep(10000);
-        SharedObject.saveData();
-        logger.info("Data Saved");
+        Thread.sleep(Server.SNAPSHOT_INTERVAL);
+        if (SharedObject.saveData()) {
+          logger.info("Data Saved");
+        }
+        SharedObject.evictColdPartitions();
       } catch (Exception e) {
         logger.severe("Error Saving Data! " + e.getMessage());
       }
@@ -0,0 +1,101 @@
+package server.threads;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.logging.Logger;
+
+import server.Server;
+import server.dataStructures.DatagramQueue;
+import shared.enumerations.ConnectionType;
+
+/**
+ * The DatagramReceiverThread class represents a thread that only drains datagrams from a channel.
+ * Datagrams are received into pooled buffers and queued for DatagramWorkerThreads to process,
+ * so the channel keeps being drained while earlier datagrams are being processed.
+ * When no buffer or no room in the queue is left, datagrams are still drained but dropped.
+ */
+public abstract class DatagramReceiverThread implements Runnable {
+  private static final Logger logger = Logger.getLogger(DatagramReceiverThread.class.getName());
+
+  private final DatagramQueue queue;
+  private final ByteBuffer discardBuffer = ByteBuffer.allocateDirect(Server.BUFFER_SIZE);
+
+  /**
+   * Constructs a new DatagramReceiverThread that feeds the given queue.
+   *
+   * @param queue the queue of received datagrams
+   */
+  protected DatagramReceiverThread(DatagramQueue queue) {
+    this.queue = queue;
+  }
+
+  /**
+   * Returns the type of connection of the datagrams received by this thread.
+   *
+   * @return the type of connection
+   */
+  protected abstract ConnectionType getConnectionType();
+
+  /**
+   * Returns the channel this thread receives datagrams from.
+   *
+   * @return the channel
+   */
+  protected abstract DatagramChannel getChannel();
+
+  /**
+   * Runs the thread, receiving and queueing datagrams until the channel is closed.
+   */
+  @Override
+  public void run() {
+    DatagramChannel channel = getChannel();
+    InetAddress localHost;
+    try {
+      localHost = InetAddress.getLocalHost();
+    } catch (IOException io) {
+      logger.severe("Error Resolving Local Host! " + io.getMessage());
+      return;
+    }
+    while (channel.isOpen()) {
+      ByteBuffer buffer = queue.acquireBuffer();
+      boolean queued = false;
+      try {
+        if (buffer == null) {
+          discardBuffer.clear();
+          channel.receive(discardBuffer);
+          logDrop();
+          continue;
+        }
+        SocketAddress sender = channel.receive(buffer);
+        if (((InetSocketAddress) sender).getAddress().equals(localHost)) {
+          continue;
+        }
+        buffer.flip();
+        queued = true;
+        if (!queue.offer(buffer, sender)) {
+          logDrop();
+        }
+      } catch (IOException io) {
+        logger.severe("Error Handling " + getConnectionType() + " Connection! " + io.getMessage());
+      } finally {
+        if (buffer != null && !queued) {
+          queue.release(buffer);
+        }
+      }
+    }
+  }
+
+  /**
+   * Logs the first dropped datagram and every hundredth one after it.
+   */
+  private void logDrop() {
+    long dropped = queue.getDropped();
+    if (dropped % 100 == 1) {
+      logger.warning(getConnectionType() + " datagrams dropped: " + dropped);
+    }
+  }
+}
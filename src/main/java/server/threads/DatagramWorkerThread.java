@@ -0,0 +1,101 @@
+package server.threads;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Logger;
+
+import server.Server;
+import server.dataStructures.DatagramQueue;
+import server.dataStructures.DatagramQueue.Datagram;
+import server.protocols.Protocol;
+import shared.enumerations.ConnectionType;
+
+/**
+ * The DatagramWorkerThread class represents a thread that processes the datagrams of one partition of a queue
+ * and sends the responses back to their senders.
+ * Only the received bytes are decoded, with a decoder and character buffer reused by the thread.
+ */
+public class DatagramWorkerThread implements Runnable {
+  private static final Logger logger = Logger.getLogger(DatagramWorkerThread.class.getName());
+
+  private final ConnectionType connectionType;
+  private final DatagramChannel channel;
+  private final DatagramQueue queue;
+  private final int partition;
+  private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+  private final CharBuffer chars = CharBuffer.allocate(Server.BUFFER_SIZE);
+
+  /**
+   * Constructs a new DatagramWorkerThread.
+   *
+   * @param connectionType the type of connection of the datagrams
+   * @param channel        the channel responses are sent through
+   * @param queue          the queue of received datagrams
+   * @param partition      the partition of the queue this thread drains
+   */
+  public DatagramWorkerThread(ConnectionType connectionType, DatagramChannel channel, DatagramQueue queue, int partition) {
+    this.connectionType = connectionType;
+    this.channel = channel;
+    this.queue = queue;
+    this.partition = partition;
+  }
+
+  /**
+   * Runs the thread, processing queued datagrams until interrupted.
+   */
+  @Override
+  public void run() {
+    while (!Thread.currentThread().isInterrupted()) {
+      Datagram datagram;
+      try {
+        datagram = queue.take(partition);
+      } catch (InterruptedException interrupted) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      String input;
+      try {
+        input = decode(datagram.getBuffer());
+      } catch (CharacterCodingException coding) {
+        logger.severe("Invalid " + connectionType + " Datagram! " + coding.getMessage());
+        continue;
+      } finally {
+        queue.release(datagram.getBuffer());
+      }
+      String output = Protocol.processInput(connectionType, datagram.getSender(), input);
+      if (output == null) {
+        continue;
+      }
+      try {
+        channel.send(ByteBuffer.wrap(output.getBytes(StandardCharsets.UTF_8)), datagram.getSender());
+      } catch (IOException io) {
+        logger.severe("Error Sending " + connectionType + " Response: " + io.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Decodes the received bytes of a buffer as UTF-8.
+   *
+   * @param buffer the buffer, flipped to the received bytes
+   * @return the decoded datagram
+   * @throws CharacterCodingException if the bytes are not valid UTF-8
+   */
+  private String decode(ByteBuffer buffer) throws CharacterCodingException {
+    decoder.reset();
+    chars.clear();
+    CoderResult result = decoder.decode(buffer, chars, true);
+    if (!result.isUnderflow()) {
+      result.throwException();
+    }
+    decoder.flush(chars);
+    chars.flip();
+    return chars.toString();
+  }
+}
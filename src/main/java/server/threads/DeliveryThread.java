@@ -0,0 +1,206 @@
+package server.threads;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import server.Server;
+import server.dataStructures.Delivery;
+import server.dataStructures.Outbox;
+import server.dataStructures.SharedObject;
+import server.dataStructures.interfaces.Event;
+import server.dataStructures.interfaces.User;
+import server.protocols.EventsHandler;
+import server.protocols.ReceiverHandler;
+
+/**
+ * The DeliveryThread class represents a worker that drains the outbox of a single user,
+ * delivering its high priority events first and keeping the order of the rest.
+ * A slow or unreachable user only holds up its own worker.
+ * A worker starts once the coalescing window has passed, so the events of a burst are sent
+ * to the user in a single frame instead of one frame each, unless a high priority event starts it.
+ * A failed delivery is retried with exponential backoff by scheduling a new worker, so no thread waits for it,
+ * and a delivery that fails too many times is moved to the user's dead letters.
+ * While the user is offline its outbox is parked instead, without using up attempts, until the user logs in again.
+ * Workers waiting for a delivery thread are started in order, but a worker whose outbox holds high priority events
+ * is started as if it had been submitted a burst of workers earlier, so it overtakes at most that many low ones.
+ */
+public class DeliveryThread implements Runnable, Comparable<DeliveryThread> {
+  private static final Logger logger = Logger.getLogger(DeliveryThread.class.getName());
+  private static final ExecutorService deliveryExecutor = Server.EXECUTION_MODE.newPriorityExecutorService(Server.DELIVERY_THREADS);
+  private static final AtomicLong submissions = new AtomicLong();
+  private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+  private final User user;
+  private final Outbox outbox;
+  private final long rank;
+
+  /**
+   * Constructs a new DeliveryThread.
+   *
+   * @param user   the user whose outbox is to be drained
+   * @param outbox the outbox of the user
+   */
+  public DeliveryThread(User user, Outbox outbox) {
+    this.user = user;
+    this.outbox = outbox;
+    long submission = submissions.getAndIncrement();
+    this.rank = outbox.hasHighPriority() ? submission - Server.DELIVERY_HIGH_BURST : submission;
+  }
+
+  /**
+   * Compares workers by the order they are to be started in.
+   *
+   * @param other the worker to be compared with
+   * @return a negative number if this worker starts first, a positive number if the other one does
+   */
+  @Override
+  public int compareTo(DeliveryThread other) {
+    return Long.compare(rank, other.rank);
+  }
+
+  /**
+   * Adds an event to the outbox of a user, starting a worker if none is draining it.
+   * The worker waits for the coalescing window, except for high priority events, which start it right away.
+   *
+   * @param user  the user the event is to be delivered to
+   * @param event the event to be delivered
+   */
+  public static void enqueue(User user, Event event) {
+    Outbox outbox = SharedObject.getOutbox(user);
+    boolean highPriority = SharedObject.isHighPriority(event);
+    if (outbox.add(event, highPriority)) {
+      schedule(user, outbox, highPriority ? 0 : Server.DELIVERY_COALESCE_WINDOW);
+    }
+  }
+
+  /**
+   * Resumes the parked outbox of a user who logged in, if any,
+   * leaving out the events the login history sends so they are not delivered twice.
+   *
+   * @param user  the user who logged in
+   * @param since the sequence number the user's history starts after
+   */
+  public static void resume(User user, long since) {
+    Outbox outbox = SharedObject.getOutbox(user);
+    if (outbox.unpark(event -> SharedObject.isInHistory(user, event, since))) {
+      schedule(user, outbox, 0);
+    }
+  }
+
+  /**
+   * Starts a worker to drain the outbox of a user after a delay.
+   *
+   * @param user   the user whose outbox is to be drained
+   * @param outbox the outbox of the user
+   * @param delay  the delay in milliseconds
+   */
+  private static void schedule(User user, Outbox outbox, long delay) {
+    if (delay <= 0) {
+      deliveryExecutor.execute(new DeliveryThread(user, outbox));
+      return;
+    }
+    scheduler.schedule(() -> deliveryExecutor.execute(new DeliveryThread(user, outbox)), delay, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Runs the worker, delivering batches of events until the outbox stays empty or a batch has to wait for a retry.
+   */
+  @Override
+  public void run() {
+    do {
+      List<Delivery> batch;
+      while (!(batch = outbox.poll(Server.DELIVERY_COALESCE_SIZE)).isEmpty()) {
+        if (SharedObject.getUserSocket(user) == null) {
+          logger.info(user.getUsername() + " is offline, parking " + batch.size() + " events until login");
+          outbox.park(batch);
+          // A login between the check and parking found nothing to resume, so the worker resumes it itself
+          if (SharedObject.getUserSocket(user) == null || !outbox.unpark(event -> false)) {
+            return;
+          }
+          continue;
+        }
+        if (deliver(batch)) {
+          continue;
+        }
+        List<Delivery> retries = new ArrayList<>();
+        int attempts = 0;
+        for (Delivery delivery : batch) {
+          attempts = delivery.failed();
+          if (attempts >= Server.DELIVERY_MAX_ATTEMPTS) {
+            logger.severe("Giving up delivering event to " + user.getUsername() + " after " + attempts + " attempts!");
+            SharedObject.addDeadLetter(user, delivery.getEvent());
+          } else {
+            retries.add(delivery);
+          }
+        }
+        if (retries.isEmpty()) {
+          continue;
+        }
+        outbox.retryLater(retries);
+        schedule(user, outbox, Math.min(Server.DELIVERY_RETRY_BASE << (attempts - 1), Server.DELIVERY_RETRY_MAX));
+        return;
+      }
+    } while (outbox.finishDraining());
+  }
+
+  /**
+   * Delivers a batch of events to the user, as a single event or as one frame holding all of them.
+   * An event that cannot be encoded is logged and left out, as retrying it would fail the same way.
+   *
+   * @param batch the deliveries to be sent
+   * @return true if the events were delivered or can never be, false if they should be retried
+   */
+  private boolean deliver(List<Delivery> batch) {
+    logger.info(batch.size() + " events to deliver to " + user.getUsername());
+    Socket socket = SharedObject.getUserSocket(user);
+    if (socket == null || socket.isClosed() || !socket.isConnected()) {
+      logger.severe("User Socket is Null or Closed");
+      return false;
+    }
+    // Each event is encoded on its own, so one that cannot be encoded is skipped without dropping the rest
+    List<JSONObject> events = new ArrayList<>();
+    for (Delivery delivery : batch) {
+      try {
+        events.add(EventsHandler.eventToJson(delivery.getEvent()));
+      } catch (JSONException json) {
+        logger.severe("Error Creating Event JSON! Skipping event " + delivery.getEvent().getSequence() + ": "
+            + json.getMessage());
+      }
+    }
+    if (events.isEmpty()) {
+      return true;
+    }
+    try {
+      JSONObject json;
+      if (events.size() == 1) {
+        json = events.get(0);
+      } else {
+        json = new JSONObject();
+        json.put("command", "events");
+        json.put("events", new JSONArray(events));
+      }
+      ReceiverHandler.sendSomething(user, json.toString());
+      logger.info(events.size() + " events delivered to " + user.getUsername());
+      return true;
+    } catch (IOException io) {
+      logger.severe("Error Delivering Events to " + user.getUsername() + "! " + io.getMessage());
+      ReceiverHandler.disconnect(user);
+      return false;
+    } catch (JSONException json) {
+      logger.severe("Error Creating Events JSON! " + json.getMessage());
+      return true;
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package server.threads;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Logger;
+
+import server.Server;
+import server.protocols.DirectSession;
+
+/**
+ * Represents an event loop that owns many direct connections with clients.
+ * A single thread multiplexes every registered channel through a selector,
+ * so idle sessions do not hold a thread each.
+ */
+public class DirectSelectorThread implements Runnable {
+  private static final Logger logger = Logger.getLogger(DirectSelectorThread.class.getName());
+
+  private final Selector selector;
+  private final Queue<SocketChannel> pendingChannels = new ConcurrentLinkedQueue<>();
+  private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(Server.BUFFER_SIZE * 8);
+
+  /**
+   * Constructs a new DirectSelectorThread with its own selector.
+   *
+   * @throws IOException if the selector cannot be opened
+   */
+  public DirectSelectorThread() throws IOException {
+    this.selector = Selector.open();
+  }
+
+  /**
+   * Hands an accepted channel to this event loop.
+   * The channel is registered by the loop thread on its next iteration.
+   *
+   * @param channel the accepted channel
+   */
+  public void register(SocketChannel channel) {
+    pendingChannels.add(channel);
+    selector.wakeup();
+  }
+
+  /**
+   * Runs the event loop, registering new channels and serving ready ones.
+   */
+  @Override
+  public void run() {
+    while (selector.isOpen()) {
+      try {
+        selector.select();
+        registerPending();
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          handle(key);
+        }
+      } catch (IOException io) {
+        logger.severe("Error Handling Direct Selector! " + io.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Registers the channels handed to this loop since the last iteration.
+   */
+  private void registerPending() {
+    SocketChannel channel;
+    while ((channel = pendingChannels.poll()) != null) {
+      try {
+        channel.configureBlocking(false);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new DirectSession(channel, key));
+      } catch (IOException io) {
+        logger.severe("Error Registering Direct Connection! " + io.getMessage());
+        try {
+          channel.close();
+        } catch (IOException ignored) {}
+      }
+    }
+  }
+
+  /**
+   * Serves a ready key, reading frames or flushing pending responses.
+   *
+   * @param key the ready selection key
+   */
+  private void handle(SelectionKey key) {
+    DirectSession session = (DirectSession) key.attachment();
+    try {
+      if (key.isValid() && key.isWritable()) {
+        session.flush();
+      }
+      if (key.isValid() && key.isReadable() && !session.read(readBuffer)) {
+        session.close();
+      }
+    } catch (IOException io) {
+      logger.severe("Error Handling Direct Message! " + io.getMessage());
+      session.close();
+    }
+  }
+}
@@ -7,6 +7,7 @@ import java.util.logging.Logger;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import server.Server;
 import server.dataStructures.SharedObject;
 import server.dataStructures.interfaces.Event;
 import server.dataStructures.interfaces.User;
@@ -16,19 +17,25 @@ import server.protocols.ReceiverHandler;
 
 /**
  * This class represents a thread that retrieves and sends message history for a user.
+ * Only the events after the ones the user acknowledged are sent,
+ * in chunks of a bounded number of events, so neither side holds the whole history as a single document.
+ * Each chunk is read from the event store only when it is about to be sent, so the server never holds the whole history either.
  */
 public class MessageHistoryThread implements Runnable {
   private static final Logger logger = Logger.getLogger(MessageHistoryThread.class.getName());
 
   private User user;
+  private long lastSequence;
 
   /**
    * Constructs a new MessageHistoryThread object.
    *
-   * @param user the user for whom the message history will be retrieved and sent
+   * @param user         the user for whom the message history will be retrieved and sent
+   * @param lastSequence the sequence number up to which the user acknowledged every event, 0 for the whole history
    */
-  public MessageHistoryThread(User user) {
+  public MessageHistoryThread(User user, long lastSequence) {
     this.user = user;
+    this.lastSequence = lastSequence;
   }
 
   /**
@@ -41,15 +48,25 @@ public class MessageHistoryThread implements Runnable {
     } catch (InterruptedException ignored) {
       Thread.currentThread().interrupt();
     }
-    List<? extends Event> events = SharedObject.getUserEvents(user);
-    if (events.size() == 0) {
-      return;
-    }
-    JSONObject jsonObject = new JSONObject();
     try {
-      jsonObject.put("command", "history");
-      jsonObject.put("events", EventsHandler.eventsToJson(events));
-      ReceiverHandler.sendSomething(user, jsonObject.toString());
+      long since = lastSequence;
+      boolean more = true;
+      // One chunk is read and encoded at a time, asking for one more sequence number to know whether another follows
+      while (more) {
+        List<Long> sequences = SharedObject.getUserSequences(user, since, Server.HISTORY_CHUNK_SIZE + 1);
+        if (sequences.isEmpty()) {
+          return;
+        }
+        more = sequences.size() > Server.HISTORY_CHUNK_SIZE;
+        List<Long> chunk = sequences.subList(0, Math.min(sequences.size(), Server.HISTORY_CHUNK_SIZE));
+        List<? extends Event> events = SharedObject.getEvents(chunk);
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("command", "history");
+        jsonObject.put("events", EventsHandler.eventsToJson(events));
+        jsonObject.put("more", more);
+        ReceiverHandler.sendSomething(user, jsonObject.toString());
+        since = chunk.get(chunk.size() - 1);
+      }
     } catch (JSONException | IOException error) {
       logger.severe("Error Sending Message History! " + error.getMessage());
     }
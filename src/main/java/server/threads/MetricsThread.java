@@ -0,0 +1,62 @@
+package server.threads;
+
+import java.util.logging.Logger;
+
+import server.Server;
+import server.dataStructures.DatagramQueue;
+import server.dataStructures.SharedObject;
+import server.protocols.EventsHandler;
+
+/**
+ * This class represents a thread that periodically logs the load counters of the server.
+ */
+public class MetricsThread implements Runnable {
+  private static final Logger logger = Logger.getLogger(MetricsThread.class.getName());
+
+  private final DatagramQueue broadcastQueue;
+  private final DatagramQueue multicastQueue;
+
+  /**
+   * Constructs a new MetricsThread.
+   *
+   * @param broadcastQueue the queue of received broadcast datagrams
+   * @param multicastQueue the queue of received multicast datagrams
+   */
+  public MetricsThread(DatagramQueue broadcastQueue, DatagramQueue multicastQueue) {
+    this.broadcastQueue = broadcastQueue;
+    this.multicastQueue = multicastQueue;
+  }
+
+  /**
+   * Logs the load counters of an executor.
+   *
+   * @param name     the name of the executor
+   * @param executor the executor
+   */
+  private void logExecutor(String name, BoundedExecutor executor) {
+    logger.info(name + " (running / queued / rejected): " + executor.getRunning() + " / " + executor.getQueued() + " / "
+        + executor.getRejected());
+  }
+
+  /**
+   * Runs the thread, logging the counters every 10 seconds.
+   */
+  @Override
+  public void run() {
+    while (true) {
+      try {
+        Thread.sleep(10000);
+      } catch (InterruptedException ignored) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      logger.info("Broadcast Datagrams (received / queued / dropped): " + broadcastQueue.getReceived() + " / "
+          + broadcastQueue.getQueued() + " / " + broadcastQueue.getDropped());
+      logger.info("Multicast Datagrams (received / queued / dropped): " + multicastQueue.getReceived() + " / "
+          + multicastQueue.getQueued() + " / " + multicastQueue.getDropped());
+      logExecutor("Server Executor", Server.getExecutorService());
+      logExecutor("Events Executor", EventsHandler.getExecutorService());
+      logger.info("Dead Letters: " + SharedObject.getDeadLetterCount());
+    }
+  }
+}
@@ -1,58 +1,34 @@
 package server.threads;
 
-import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.InetAddress;
-import java.net.MulticastSocket;
-import java.util.logging.Logger;
+import java.nio.channels.DatagramChannel;
 
-import server.Server;
+import server.dataStructures.DatagramQueue;
 import server.dataStructures.SharedObject;
-import server.protocols.Protocol;
 import shared.enumerations.ConnectionType;
 
 /**
  * MulticastThread class.
  * This class is responsible for handling the multicast connection.
- * It receives multicast packets, processes them, and sends responses back to the clients.
+ * It receives multicast datagrams from the clients and queues them for processing.
  */
-public class MulticastThread implements Runnable {
-  private static final Logger logger = Logger.getLogger(MulticastThread.class.getName());
+public class MulticastThread extends DatagramReceiverThread {
 
   /**
    * MulticastThread constructor.
+   *
+   * @param queue the queue of received multicast datagrams
    */
-  public MulticastThread() {}
+  public MulticastThread(DatagramQueue queue) {
+    super(queue);
+  }
+
+  @Override
+  protected ConnectionType getConnectionType() {
+    return ConnectionType.MULTICAST;
+  }
 
-  /**
-   * Runs the multicast thread.
-   * It continuously receives multicast packets, processes them, and sends responses back to the clients.
-   */
   @Override
-  public void run() {
-    try (
-        MulticastSocket multicastSocket = SharedObject.getMulticastSocket()) {
-      while (true) {
-        byte[] buffer = new byte[Server.BUFFER_SIZE];
-        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
-        multicastSocket.receive(packet);
-        if (packet.getAddress().equals(InetAddress.getLocalHost())) {
-          continue;
-        }
-        String input = new String(packet.getData());
-        String output = Protocol.processInput(ConnectionType.MULTICAST, packet, input);
-        if (output == null) {
-          continue;
-        }
-        DatagramPacket response = new DatagramPacket(output.getBytes(), output.length(), packet.getAddress(), packet.getPort());
-        try {
-          multicastSocket.send(response);
-        } catch (IOException io) {
-          logger.severe("Error sending Multicast Response: " + io.getMessage());
-        }
-      }
-    } catch (IOException io) {
-      logger.severe("Error Handling Multicast Connection! " + io.getMessage());
-    }
+  protected DatagramChannel getChannel() {
+    return SharedObject.getMulticastChannel();
   }
 }
@@ -0,0 +1,26 @@
+package server.threads;
+
+import server.Server;
+import server.protocols.ReceiverHandler;
+
+/**
+ * This class represents a thread that periodically closes the push channels left idle by quiet clients.
+ */
+public class PushChannelReaperThread implements Runnable {
+
+  /**
+   * Runs the thread, closing idle push channels every PUSH_POOL_IDLE_CHECK milliseconds.
+   */
+  @Override
+  public void run() {
+    while (true) {
+      try {
+        Thread.sleep(Server.PUSH_POOL_IDLE_CHECK);
+      } catch (InterruptedException ignored) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      ReceiverHandler.closeIdlePushChannels();
+    }
+  }
+}
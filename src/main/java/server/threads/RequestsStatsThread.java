@@ -1,12 +1,13 @@
 package server.threads;
 
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.TreeSet;
 import java.util.logging.Logger;
 
 import org.json.JSONException;
@@ -14,10 +15,10 @@ import org.json.JSONObject;
 
 import server.Server;
 import server.dataStructures.SharedObject;
-import server.dataStructures.interfaces.Request;
 
 /**
  * This class represents a thread that periodically logs and broadcasts the statistics of requests and accepted requests.
+ * It reads the counts kept by the shared object, so the requests themselves stay on disk.
  */
 public class RequestsStatsThread implements Runnable {
   private static final Logger logger = Logger.getLogger(RequestsStatsThread.class.getName());
@@ -34,29 +35,28 @@ public class RequestsStatsThread implements Runnable {
       } catch (InterruptedException ignored) {
         Thread.currentThread().interrupt();
       }
-      TreeSet<Request> requests = new TreeSet<>(SharedObject.getRequests());
-      TreeSet<Request> acceptedRequests = new TreeSet<>(SharedObject.getAcceptedRequests(requests));
-      logger.info("Requests: " + requests.size());
-      logger.info("Accepted Requests: " + acceptedRequests.size());
       try {
+        int requests = SharedObject.getRequestCount();
+        int acceptedRequests = SharedObject.getAcceptedRequestCount();
+        logger.info("Requests: " + requests);
+        logger.info("Accepted Requests: " + acceptedRequests);
         JSONObject json = new JSONObject();
         json.put("command", "message");
         json.put("from", "server");
         json.put("to", "broadcast");
-        json.put("content", "Total Requests / Accepted Requests: " + requests.size() + " / " + acceptedRequests.size());
+        json.put("content", "Total Requests / Accepted Requests: " + requests + " / " + acceptedRequests);
         SimpleDateFormat sdf = new SimpleDateFormat("dd-MM-yyyy HH:mm");
         json.put("date", sdf.format(new Date()));
 
         String output = json.toString();
 
-        DatagramPacket packet = new DatagramPacket(output.getBytes(), output.getBytes().length,
-            InetAddress.getByName(Server.BROADCAST_ADDRESS), Server.USER_PORT);
-        DatagramSocket socket = SharedObject.getBroadcastSocket();
-        if (socket == null) {
-          logger.severe("Broadcast socket is null!");
+        DatagramChannel channel = SharedObject.getBroadcastChannel();
+        if (channel == null) {
+          logger.severe("Broadcast channel is null!");
           continue;
         }
-        socket.send(packet);
+        channel.send(ByteBuffer.wrap(output.getBytes(StandardCharsets.UTF_8)),
+            new InetSocketAddress(InetAddress.getByName(Server.BROADCAST_ADDRESS), Server.USER_PORT));
       } catch (IOException | JSONException error) {
         logger.severe("Error Sending Requests Stats! " + error.getMessage());
       }
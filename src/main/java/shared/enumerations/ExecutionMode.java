@@ -0,0 +1,75 @@
+package shared.enumerations;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents how blocking tasks are executed.
+ * PLATFORM runs them on fixed pools of operating system threads,
+ * while VIRTUAL runs each task on its own virtual thread.
+ */
+public enum ExecutionMode {
+  PLATFORM, VIRTUAL;
+
+  /**
+   * Returns the execution mode selected by the "executionMode" system property.
+   * Defaults to VIRTUAL when the property is not set.
+   *
+   * @return the selected execution mode
+   * @throws IllegalArgumentException if the property does not name an execution mode
+   */
+  public static ExecutionMode fromProperty() {
+    return ExecutionMode.valueOf(System.getProperty("executionMode", VIRTUAL.toString()).toUpperCase());
+  }
+
+  /**
+   * Creates an executor service for blocking tasks.
+   *
+   * @param platformThreads the number of threads of the pool when running on platform threads
+   * @return a fixed thread pool for PLATFORM, or a virtual thread per task executor for VIRTUAL
+   */
+  public ExecutorService newExecutorService(int platformThreads) {
+    switch (this) {
+      case VIRTUAL:
+        return Executors.newVirtualThreadPerTaskExecutor();
+      default:
+        return Executors.newFixedThreadPool(platformThreads);
+    }
+  }
+
+  /**
+   * Creates an executor service for blocking tasks that runs the waiting tasks in priority order.
+   * Only a pool of platform threads keeps tasks waiting; virtual threads start every task right away.
+   *
+   * @param platformThreads the number of threads of the pool when running on platform threads
+   * @return a fixed thread pool taking its tasks, which must be Comparable, from a priority queue for PLATFORM,
+   *         or a virtual thread per task executor for VIRTUAL
+   */
+  public ExecutorService newPriorityExecutorService(int platformThreads) {
+    switch (this) {
+      case VIRTUAL:
+        return Executors.newVirtualThreadPerTaskExecutor();
+      default:
+        return new ThreadPoolExecutor(platformThreads, platformThreads, 0, TimeUnit.MILLISECONDS,
+            new PriorityBlockingQueue<>());
+    }
+  }
+
+  /**
+   * Starts a new thread running the given task.
+   *
+   * @param task the task to run
+   * @return the started thread
+   */
+  public Thread startThread(Runnable task) {
+    switch (this) {
+      case VIRTUAL:
+        return Thread.ofVirtual().start(task);
+      default:
+        return Thread.ofPlatform().start(task);
+    }
+  }
+}
@@ -0,0 +1,9 @@
+package shared.enumerations;
+
+/**
+ * Represents how frames are delimited on a direct connection.
+ * LINE frames end with a newline, while LENGTH frames are preceded by their size in bytes.
+ */
+public enum Framing {
+  LINE, LENGTH;
+}
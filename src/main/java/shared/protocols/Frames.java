@@ -0,0 +1,82 @@
+package shared.protocols;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import shared.enumerations.Framing;
+
+/**
+ * This class reads and writes frames on stream-based direct connections.
+ * LINE frames are UTF-8 text terminated by a newline.
+ * LENGTH frames are a 4-byte big-endian size followed by that many bytes of UTF-8 text.
+ */
+public class Frames {
+  public static final int MAX_FRAME_SIZE = 1024 * 1024;
+
+  /**
+   * Writes a frame and flushes the stream.
+   *
+   * @param out     the stream to write to
+   * @param framing the framing of the connection
+   * @param frame   the content of the frame
+   * @throws IOException if an I/O error occurs while writing
+   */
+  public static void write(DataOutputStream out, Framing framing, String frame) throws IOException {
+    byte[] bytes = frame.getBytes(StandardCharsets.UTF_8);
+    if (framing == Framing.LENGTH) {
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    } else {
+      out.write(bytes);
+      out.write('\n');
+    }
+    out.flush();
+  }
+
+  /**
+   * Reads a frame.
+   *
+   * @param in      the stream to read from
+   * @param framing the framing of the connection
+   * @return the content of the frame, or null if the stream ended before a new frame started
+   * @throws IOException if an I/O error occurs, the stream ends inside a frame or the frame is too large
+   */
+  public static String read(DataInputStream in, Framing framing) throws IOException {
+    if (framing == Framing.LENGTH) {
+      int first = in.read();
+      if (first == -1) {
+        return null;
+      }
+      int length = (first << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+      if (length < 0 || length > MAX_FRAME_SIZE) {
+        throw new IOException("Invalid frame length " + length + "!");
+      }
+      byte[] bytes = new byte[length];
+      in.readFully(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+    ByteArrayOutputStream line = new ByteArrayOutputStream();
+    while (true) {
+      int read = in.read();
+      if (read == -1) {
+        if (line.size() == 0) {
+          return null;
+        }
+        throw new EOFException("Stream ended inside a frame!");
+      }
+      if (read == '\n') {
+        break;
+      }
+      if (line.size() == MAX_FRAME_SIZE) {
+        throw new IOException("Frame exceeds " + MAX_FRAME_SIZE + " bytes!");
+      }
+      line.write(read);
+    }
+    String frame = line.toString(StandardCharsets.UTF_8);
+    return frame.endsWith("\r") ? frame.substring(0, frame.length() - 1) : frame;
+  }
+}